@@ -0,0 +1,161 @@
+package main.csp;
+
+import java.util.*;
+
+/**
+ * AC-6 arc consistency: rather than revising whole arcs again, every day a
+ * of an arc's tail keeps a single current support b in the arc's head, and
+ * is listed under b. Removing b then only touches the days b was
+ * supporting, each of which looks for its next support after b, in
+ * ascending order, so no pair of days is ever tested twice.
+ *
+ * Supports are sought by operator, as in CSPSolver's AC-3 revisions, and
+ * the fixpoint reached is the same as AC-3's. Space is O(arcs * d + n * d)
+ * ints for d the number of days spanned by the domains.
+ */
+public class AC6Propagator {
+
+    private final List<MeetingDomain> varDomains;
+    private final ConstraintIndex index;
+    private final int origin, span;
+
+    // Slot arc * span + (a - origin) stands for day a of arc's tail: the
+    // slots supported by day b of meeting v form a linked list starting at
+    // listHead[v * span + (b - origin)] and chained through listNext
+    private final int[] listHead, listNext;
+
+    // Meetings and days removed whose supported slots remain to be visited
+    private int[] removedMeetings = new int[64], removedDays = new int[64];
+    private int nRemoved;
+
+    private AC6Propagator (List<MeetingDomain> varDomains, ConstraintIndex index, int origin, int span) {
+        if ((long) index.arcs() * span > Integer.MAX_VALUE || (long) varDomains.size() * span > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Too many arcs and days for AC-6 supports");
+        }
+        this.varDomains = varDomains;
+        this.index = index;
+        this.origin = origin;
+        this.span = span;
+        this.listHead = new int[varDomains.size() * span];
+        this.listNext = new int[index.arcs() * span];
+        Arrays.fill(this.listHead, -1);
+    }
+
+    /**
+     * Enforces arc consistency over the arcs of index with AC-6.
+     * @param varDomains List of MeetingDomains in which index i corresponds to D_i
+     * @param index      The binary constraints on those meetings
+     * @return false if some domain is or has been emptied, in which case no
+     *         solution exists.
+     */
+    public static boolean propagate (List<MeetingDomain> varDomains, ConstraintIndex index) {
+        int first = Integer.MAX_VALUE, last = Integer.MIN_VALUE;
+        boolean consistent = true;
+        for (MeetingDomain domain : varDomains) {
+            if (domain.isEmpty()) {
+                consistent = false;
+            } else {
+                first = Math.min(first, domain.first());
+                last = Math.max(last, domain.last());
+            }
+        }
+        if (first > last || index.arcs() == 0) {
+            return consistent;
+        }
+        AC6Propagator ac6 = new AC6Propagator(varDomains, index, first, last - first + 1);
+        ac6.initialize();
+        ac6.propagate();
+        for (MeetingDomain domain : varDomains) {
+            consistent &= !domain.isEmpty();
+        }
+        return consistent;
+    }
+
+    /**
+     * Finds every tail day's first support, removing the days that have none.
+     */
+    private void initialize () {
+        for (int arc = 0; arc < this.index.arcs(); arc++) {
+            int tailMeeting = this.index.tail(arc);
+            MeetingDomain tail = this.varDomains.get(tailMeeting),
+                          head = this.varDomains.get(this.index.head(arc));
+            DateOp op = this.index.op(arc);
+            for (int a = tail.first(); a != MeetingDomain.NONE; a = tail.next(a + 1)) {
+                int b = nextSupport(op, a, head, head.first());
+                if (b == MeetingDomain.NONE) {
+                    this.remove(tailMeeting, tail, a);
+                } else {
+                    this.list(arc, a, this.index.head(arc), b);
+                }
+            }
+        }
+    }
+
+    /**
+     * Visits the days supported by each removed day until none remain.
+     */
+    private void propagate () {
+        while (this.nRemoved > 0) {
+            this.nRemoved--;
+            int meeting = this.removedMeetings[this.nRemoved], b = this.removedDays[this.nRemoved];
+            int key = meeting * this.span + (b - this.origin);
+            int slot = this.listHead[key];
+            this.listHead[key] = -1;
+            while (slot != -1) {
+                int following = this.listNext[slot];
+                int arc = slot / this.span, a = slot % this.span + this.origin;
+                int tailMeeting = this.index.tail(arc);
+                MeetingDomain tail = this.varDomains.get(tailMeeting),
+                              head = this.varDomains.get(meeting);
+                if (tail.contains(a)) {
+                    int support = nextSupport(this.index.op(arc), a, head, b + 1);
+                    if (support == MeetingDomain.NONE) {
+                        this.remove(tailMeeting, tail, a);
+                    } else {
+                        this.list(arc, a, meeting, support);
+                    }
+                }
+                slot = following;
+            }
+        }
+    }
+
+    private void list (int arc, int a, int headMeeting, int b) {
+        int slot = arc * this.span + (a - this.origin), key = headMeeting * this.span + (b - this.origin);
+        this.listNext[slot] = this.listHead[key];
+        this.listHead[key] = slot;
+    }
+
+    private void remove (int meeting, MeetingDomain domain, int day) {
+        domain.remove(day);
+        if (this.nRemoved == this.removedDays.length) {
+            this.removedMeetings = Arrays.copyOf(this.removedMeetings, this.nRemoved * 2);
+            this.removedDays = Arrays.copyOf(this.removedDays, this.nRemoved * 2);
+        }
+        this.removedMeetings[this.nRemoved] = meeting;
+        this.removedDays[this.nRemoved++] = day;
+    }
+
+    /**
+     * Finds the earliest day of head on or after from such that "a op day".
+     * @param op The arc's operator, read from its tail
+     * @param a A day of the arc's tail
+     * @param head The domain of the arc's head
+     * @param from The earliest day that may support a
+     * @return The support found, or MeetingDomain.NONE if there is none.
+     */
+    static int nextSupport (DateOp op, int a, MeetingDomain head, int from) {
+        int b;
+        switch (op) {
+        case LT: return head.next(Math.max(from, a + 1));
+        case LE: return head.next(Math.max(from, a));
+        case GT: b = head.next(from); return (b != MeetingDomain.NONE && b < a) ? b : MeetingDomain.NONE;
+        case GE: b = head.next(from); return (b != MeetingDomain.NONE && b <= a) ? b : MeetingDomain.NONE;
+        case EQ: return (a >= from && head.contains(a)) ? a : MeetingDomain.NONE;
+        default:
+            b = head.next(from);
+            return (b == a) ? head.next(a + 1) : b;
+        }
+    }
+
+}
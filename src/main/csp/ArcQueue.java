@@ -0,0 +1,120 @@
+package main.csp;
+
+import java.util.Arrays;
+
+/**
+ * AC-3 worklist over the arcs of a ConstraintIndex: a FIFO ring of arc
+ * indexes plus a bitmap of the arcs currently queued, so that enqueueing an
+ * arc already waiting is a no-op and every operation is O(1) without
+ * hashing or allocating.
+ *
+ * Since an arc is never queued twice, the ring never holds more than one
+ * slot per arc.
+ */
+public class ArcQueue {
+
+    private int[] ring;
+    private long[] queued;
+    private int head, size;
+
+    /**
+     * Constructs an empty queue for arcs numbered 0 to nArcs - 1.
+     * @param nArcs The number of arcs, such as ConstraintIndex.arcs ()
+     */
+    public ArcQueue (int nArcs) {
+        this(nArcs, nArcs);
+    }
+
+    /**
+     * Constructs an empty queue for at most capacity of the arcs numbered 0
+     * to nArcs - 1, such as those of one component of the constraint graph.
+     * @param nArcs The number of arcs, such as ConstraintIndex.arcs ()
+     * @param capacity The number of distinct arcs that may ever be queued
+     */
+    public ArcQueue (int nArcs, int capacity) {
+        this.ring = new int[Math.max(1, capacity)];
+        this.queued = new long[(nArcs + 63) >>> 6];
+    }
+
+    /**
+     * @return The number of arcs waiting.
+     */
+    public int size () {
+        return this.size;
+    }
+
+    /**
+     * @return Whether or not no arc is waiting.
+     */
+    public boolean isEmpty () {
+        return this.size == 0;
+    }
+
+    /**
+     * @param arc An arc index.
+     * @return Whether or not the arc is waiting.
+     */
+    public boolean contains (int arc) {
+        return (this.queued[arc >>> 6] & (1L << arc)) != 0;
+    }
+
+    /**
+     * Adds the arc at the back of the queue, unless it is already waiting.
+     * @param arc An arc index.
+     * @return true if the arc has been added.
+     */
+    public boolean add (int arc) {
+        long bit = 1L << arc;
+        if ((this.queued[arc >>> 6] & bit) != 0) {
+            return false;
+        }
+        this.queued[arc >>> 6] |= bit;
+        int tail = this.head + this.size;
+        this.ring[tail >= this.ring.length ? tail - this.ring.length : tail] = arc;
+        this.size++;
+        return true;
+    }
+
+    /**
+     * Removes the arc at the front of the queue.
+     * @return The arc that has waited longest.
+     */
+    public int poll () {
+        int arc = this.ring[this.head];
+        this.head = (this.head + 1 == this.ring.length) ? 0 : this.head + 1;
+        this.size--;
+        this.queued[arc >>> 6] &= ~(1L << arc);
+        return arc;
+    }
+
+    /**
+     * Makes room for arcs numbered up to nArcs - 1, such as once constraints
+     * have been added to the index, keeping the arcs waiting in order.
+     * @param nArcs The new number of arcs
+     */
+    public void grow (int nArcs) {
+        if (nArcs > this.ring.length) {
+            int[] ring = new int[Math.max(nArcs, this.ring.length * 2)];
+            for (int i = 0; i < this.size; i++) {
+                int slot = this.head + i;
+                ring[i] = this.ring[slot >= this.ring.length ? slot - this.ring.length : slot];
+            }
+            this.ring = ring;
+            this.head = 0;
+        }
+        if ((nArcs + 63) >>> 6 > this.queued.length) {
+            this.queued = Arrays.copyOf(this.queued, Math.max((nArcs + 63) >>> 6, this.queued.length * 2));
+        }
+    }
+
+    /**
+     * Empties the queue in O(size).
+     */
+    public void clear () {
+        while (this.size > 0) {
+            this.poll();
+        }
+        this.head = 0;
+    }
+
+}
@@ -0,0 +1,496 @@
+package main.csp;
+
+import java.util.*;
+
+/**
+ * Depth-first backtracking search for a full assignment of the meetings,
+ * run by CSPSolver.solve once the domains have been propagated.
+ *
+ * The assignment is an array indexed by meeting, and the next meeting to
+ * assign is chosen dynamically by minimum remaining values: the fewest
+ * days of its domain still consistent with the meetings assigned so far,
+ * ties going to the meeting constrained with the most unassigned ones.
+ * Only the chosen meeting's days are tried, so a meeting left with no
+ * consistent day fails the search right away, rather than once every
+ * meeting before it in index order has been assigned.
+ *
+ * Remaining values are counted within the window the assigned neighbours'
+ * orderings leave, and only up to the best count so far.
+ *
+ * The chosen meeting's consistent days are then tried least constraining
+ * first: by the number of days they would rule out of the domains of its
+ * unassigned neighbours, counted with MeetingDomain.count over the range
+ * each ordering excludes rather than day by day, and earliest first among
+ * equals.
+ *
+ * With Lookahead.FORWARD_CHECKING, each assignment also prunes the days
+ * it rules out from its unassigned neighbours' domains, by bound
+ * truncations for orderings, and fails at once if one is wiped out. The
+ * domains are attached to a Trail of the search's own meanwhile, each
+ * assignment opening a level that backtracking restores, and are left as
+ * they were found once the search is over. Remaining values are then
+ * simply domain sizes.
+ *
+ * With Lookahead.MAC, each assignment instead narrows its meeting's domain
+ * to the day assigned, and AC-3 propagates that from the arcs into the
+ * meeting, through every meeting it reaches, with the same reversible
+ * domains and a single ArcQueue kept across assignments. Propagation stops
+ * at the first domain wiped out, as the assignment is undone anyway.
+ *
+ * With SolverOptions.backjumping, each failure comes back with its
+ * conflict set: the depths of the assignments it owes something to. A
+ * meeting runs out of days in conflict with the assigned neighbours whose
+ * constraints rule out days of its domain as the search found it, and with
+ * whatever the failures below each of its days were in conflict with. The
+ * search then backtracks straight to the most recent assignment in the
+ * set, undoing the ones after it without trying their other days, which
+ * could not have helped. Under MAC, where days are pruned by chains of
+ * propagation, a failure is conservatively put down to every assignment
+ * in its meeting's connected component.
+ */
+public class BacktrackingSearch {
+
+    private final List<MeetingDomain> varDomains;
+    private final ConstraintIndex index;
+    private final int n;
+    private final int[] assignment;
+    private final boolean leastConstraining;
+    private final Lookahead lookahead;
+    private final SearchStatistics statistics;
+    private final boolean backjumping;
+    private int assigned;
+
+    // The depth at which each meeting was assigned, and the conflict set of
+    // the last failure, as depths
+    private int[] depths;
+    private BitSet conflict;
+    // The meeting whose domain the last lookahead or selection found empty
+    private int wipedOut;
+    // The domains as the search found them, and MAC's constraint components
+    private List<MeetingDomain> rootDomains;
+    private int[] components;
+
+    // Records the lookahead's pruning, or null without lookahead
+    private Trail trail;
+    private ArcQueue queue;
+
+    /**
+     * Constructs a search over the given domains, with the default
+     * SolverOptions.
+     * @param varDomains List of MeetingDomains in which index i corresponds to D_i
+     * @param index      The constraints on those meetings
+     */
+    public BacktrackingSearch (List<MeetingDomain> varDomains, ConstraintIndex index) {
+        this(varDomains, index, new SolverOptions());
+    }
+
+    /**
+     * Constructs a search over the given domains, which it may prune while
+     * it runs but leaves unchanged once it is over. Domains of an
+     * OffHeapDomainStore, which cannot be attached to a Trail, are searched
+     * over heap copies instead.
+     * @param varDomains List of MeetingDomains in which index i corresponds to D_i
+     * @param index      The constraints on those meetings
+     * @param options    The search heuristics and lookahead to use
+     */
+    public BacktrackingSearch (List<MeetingDomain> varDomains, ConstraintIndex index, SolverOptions options) {
+        this.varDomains = onHeap(varDomains);
+        this.index = index;
+        this.n = varDomains.size();
+        this.assignment = new int[this.n];
+        this.leastConstraining = options.leastConstrainingValue();
+        this.lookahead = options.lookahead();
+        this.statistics = (options.statistics() != null) ? options.statistics() : new SearchStatistics();
+        this.backjumping = options.backjumping();
+        Arrays.fill(this.assignment, MeetingDomain.NONE);
+    }
+
+    /**
+     * @return The given domains, or heap copies of them all if any is
+     *         off-heap.
+     */
+    private static List<MeetingDomain> onHeap (List<MeetingDomain> varDomains) {
+        for (MeetingDomain domain : varDomains) {
+            if (domain.isOffHeap()) {
+                List<MeetingDomain> copies = new ArrayList<>(varDomains.size());
+                for (MeetingDomain original : varDomains) {
+                    copies.add(new MeetingDomain(original));
+                }
+                return copies;
+            }
+        }
+        return varDomains;
+    }
+
+    /**
+     * Runs the search to its first solution.
+     * @return The epoch days of a full assignment that satisfies each of the
+     *         constraints, indexed by meeting, or null if no solution exists.
+     */
+    public int[] solve () {
+        if (this.backjumping) {
+            this.depths = new int[this.n];
+            // Forward checking prunes the domains in place, so explanations
+            // need a copy of them, which copy-on-write makes cheap
+            this.rootDomains = this.varDomains;
+            if (this.lookahead == Lookahead.FORWARD_CHECKING) {
+                this.rootDomains = new ArrayList<>(this.n);
+                for (MeetingDomain domain : this.varDomains) {
+                    this.rootDomains.add(new MeetingDomain(domain));
+                }
+            } else if (this.lookahead == Lookahead.MAC) {
+                this.components = this.index.components();
+            }
+        }
+        if (this.lookahead == Lookahead.NONE) {
+            return this.search() ? this.assignment.clone() : null;
+        }
+        // The caller may be tracking these domains with a Trail of its own,
+        // which the pruning undone here never needs to reach
+        Trail[] previous = new Trail[this.n];
+        for (int m = 0; m < this.n; m++) {
+            previous[m] = this.varDomains.get(m).trail;
+        }
+        this.trail = new Trail();
+        this.trail.attach(this.varDomains);
+        if (this.lookahead == Lookahead.MAC) {
+            this.queue = new ArcQueue(this.index.arcs());
+        }
+        try {
+            return this.search() ? this.assignment.clone() : null;
+        } finally {
+            this.trail.restore(0);
+            this.trail = null;
+            this.queue = null;
+            this.rootDomains = null;
+            for (int m = 0; m < this.n; m++) {
+                this.varDomains.get(m).trail = previous[m];
+            }
+        }
+    }
+
+    /**
+     * @return The counts of this search, which are those of the
+     *         SolverOptions' statistics if it was given any.
+     */
+    public SearchStatistics statistics () {
+        return this.statistics;
+    }
+
+    private boolean search () {
+        if (this.assigned == this.n) {
+            return true;
+        }
+        int meeting = this.select();
+        if (meeting < 0) {
+            if (this.backjumping) {
+                this.conflict = this.explain(this.wipedOut);
+            }
+            return false;
+        }
+        int[] days = this.candidates(meeting);
+        // Days already ruled out of the domain are in conflict with whatever ruled them out
+        BitSet conflicts = this.backjumping ? this.explain(meeting) : null;
+        int depth = this.assigned++;
+        if (this.backjumping) {
+            this.depths[meeting] = depth;
+        }
+        for (int day : days) {
+            this.assignment[meeting] = day;
+            this.statistics.node();
+            int level = (this.trail != null) ? this.trail.push() : 0;
+            if (this.lookAhead(meeting, day)) {
+                if (this.search()) {
+                    return true;
+                }
+            } else {
+                this.statistics.wipeout();
+                if (this.backjumping) {
+                    this.conflict = this.explain(this.wipedOut);
+                }
+            }
+            this.statistics.backtrack();
+            if (this.trail != null) {
+                this.trail.restore(level);
+            }
+            if (this.backjumping) {
+                if (!this.conflict.get(depth)) {
+                    // The failure owes nothing to this meeting's day, so no
+                    // other day of it can help: jump past it with its conflicts
+                    this.statistics.backjump();
+                    conflicts = null;
+                    break;
+                }
+                this.conflict.clear(depth);
+                conflicts.or(this.conflict);
+            }
+        }
+        this.assigned--;
+        this.assignment[meeting] = MeetingDomain.NONE;
+        if (conflicts != null) {
+            this.conflict = conflicts;
+        }
+        return false;
+    }
+
+    /**
+     * Lists the assignments that the days missing from m's current domain,
+     * or inconsistent with the assignment, can be put down to.
+     * @param m A meeting
+     * @return The depths of those assignments.
+     */
+    private BitSet explain (int m) {
+        BitSet explanation = new BitSet(this.assigned);
+        if (this.lookahead == Lookahead.MAC) {
+            for (int other = 0; other < this.n; other++) {
+                if (this.assignment[other] != MeetingDomain.NONE && this.components[other] == this.components[m]) {
+                    explanation.set(this.depths[other]);
+                }
+            }
+            return explanation;
+        }
+        MeetingDomain root = this.rootDomains.get(m);
+        for (int arc : this.index.arcsFrom(m)) {
+            int head = this.index.head(arc), b = this.assignment[head];
+            if (b != MeetingDomain.NONE && rulesOut(root, this.index.op(arc), b)) {
+                explanation.set(this.depths[head]);
+            }
+        }
+        return explanation;
+    }
+
+    /**
+     * @return Whether or not "a op b" fails for some day a of domain.
+     */
+    private static boolean rulesOut (MeetingDomain domain, DateOp op, int b) {
+        switch (op) {
+        case LT: return domain.last() >= b;
+        case LE: return domain.last() > b;
+        case GT: return domain.first() <= b;
+        case GE: return domain.first() < b;
+        case EQ: return domain.size() > 1 || !domain.contains(b);
+        default: return domain.contains(b);
+        }
+    }
+
+    /**
+     * Prunes the domains of the meetings not yet assigned by the lookahead.
+     * @param m   The meeting just assigned
+     * @param day The day assigned to it
+     * @return false if some domain has been wiped out.
+     */
+    private boolean lookAhead (int m, int day) {
+        switch (this.lookahead) {
+        case FORWARD_CHECKING: return this.forwardCheck(m, day);
+        case MAC: return this.maintainArcConsistency(m, day);
+        default: return true;
+        }
+    }
+
+    /**
+     * Narrows m's domain to day and makes every domain arc consistent again.
+     * @param m   The meeting just assigned
+     * @param day The day assigned to it
+     * @return false if some domain has been wiped out.
+     */
+    private boolean maintainArcConsistency (int m, int day) {
+        MeetingDomain domain = this.varDomains.get(m);
+        domain.removeBefore(day);
+        domain.removeAfter(day);
+        for (int arc : this.index.arcsInto(m)) {
+            this.queue.add(arc);
+        }
+        // Propagation from m stays within m's component
+        this.wipedOut = m;
+        return CSPSolver.propagateUntilWipeout(this.varDomains, this.index, Propagation.AC3, this.queue);
+    }
+
+    /**
+     * Removes the days incompatible with m on day from the domains of m's
+     * unassigned neighbours.
+     * @param m   The meeting just assigned
+     * @param day The day assigned to it
+     * @return false if some neighbour's domain has been wiped out.
+     */
+    private boolean forwardCheck (int m, int day) {
+        for (int arc : this.index.arcsInto(m)) {
+            int tail = this.index.tail(arc);
+            if (this.assignment[tail] != MeetingDomain.NONE) {
+                continue;
+            }
+            MeetingDomain domain = this.varDomains.get(tail);
+            // The arc holds when "b op day" for the tail's days b
+            switch (this.index.op(arc)) {
+            case LT: domain.removeAfter(day - 1); break;
+            case LE: domain.removeAfter(day); break;
+            case GT: domain.removeBefore(day + 1); break;
+            case GE: domain.removeBefore(day); break;
+            case EQ: domain.removeBefore(day); domain.removeAfter(day); break;
+            default: domain.remove(day);
+            }
+            if (domain.isEmpty()) {
+                this.wipedOut = tail;
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Chooses the unassigned meeting with the fewest remaining values,
+     * breaking ties by the number of constraints with unassigned meetings.
+     * @return The meeting chosen, or -1 if some meeting has no remaining
+     *         value, which is then left in wipedOut.
+     */
+    private int select () {
+        int best = -1, bestRemaining = Integer.MAX_VALUE, bestDegree = -1;
+        for (int m = 0; m < this.n; m++) {
+            if (this.assignment[m] != MeetingDomain.NONE) {
+                continue;
+            }
+            int remaining = this.remaining(m, bestRemaining);
+            if (remaining == 0) {
+                this.wipedOut = m;
+                return -1;
+            }
+            if (remaining > bestRemaining) {
+                continue;
+            }
+            int degree = this.unassignedDegree(m);
+            if (remaining < bestRemaining || degree > bestDegree) {
+                best = m;
+                bestRemaining = remaining;
+                bestDegree = degree;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Lists the days of m's domain consistent with the meetings assigned so
+     * far, in the order to try them.
+     * @param m An unassigned meeting
+     * @return Those days, least constraining first if so configured, and
+     *         otherwise in ascending order.
+     */
+    private int[] candidates (int m) {
+        MeetingDomain domain = this.varDomains.get(m);
+        boolean ranked = this.leastConstraining && this.unassignedDegree(m) > 0;
+        int first = domain.first(), k = 0;
+        // Cost in the high half, offset from first in the low, so sorting
+        // orders by cost and then by day
+        long[] keys = new long[domain.size()];
+        for (int day = first; day != MeetingDomain.NONE; day = domain.next(day + 1)) {
+            this.assignment[m] = day;
+            // Only constraints on the meeting just assigned can have become violated
+            if (this.index.isConsistent(m, this.assignment)) {
+                long cost = ranked ? this.ruledOut(m, day) : 0;
+                keys[k++] = (cost << 32) | (day - first);
+            }
+        }
+        this.assignment[m] = MeetingDomain.NONE;
+        if (ranked) {
+            Arrays.sort(keys, 0, k);
+        }
+        int[] days = new int[k];
+        for (int i = 0; i < k; i++) {
+            days[i] = first + (int) keys[i];
+        }
+        return days;
+    }
+
+    /**
+     * Counts the days that assigning day to m rules out of the domains of
+     * m's unassigned neighbours, one range count per ordering.
+     * @param m   An unassigned meeting
+     * @param day A day of m's domain
+     * @return The number of days ruled out, counted once per constraint.
+     */
+    private int ruledOut (int m, int day) {
+        int total = 0;
+        for (int arc : this.index.arcsFrom(m)) {
+            int head = this.index.head(arc);
+            if (this.assignment[head] != MeetingDomain.NONE) {
+                continue;
+            }
+            MeetingDomain domain = this.varDomains.get(head);
+            switch (this.index.op(arc)) {
+            // "day < b" rules out b <= day, and so on
+            case LT: total += domain.count(Integer.MIN_VALUE, day); break;
+            case LE: total += domain.count(Integer.MIN_VALUE, day - 1); break;
+            case GT: total += domain.count(day, Integer.MAX_VALUE); break;
+            case GE: total += domain.count(day + 1, Integer.MAX_VALUE); break;
+            case EQ: total += domain.size() - (domain.contains(day) ? 1 : 0); break;
+            default: total += domain.contains(day) ? 1 : 0;
+            }
+        }
+        return total;
+    }
+
+    /**
+     * Counts the days of m's domain consistent with every assigned meeting
+     * m is constrained with, stopping past bound.
+     * @param m     An unassigned meeting
+     * @param bound The count past which the exact count is not needed
+     * @return The count, or bound + 1 if it is larger than bound.
+     */
+    private int remaining (int m, int bound) {
+        MeetingDomain domain = this.varDomains.get(m);
+        // Lookahead keeps every domain consistent with the assignment
+        if (domain.isEmpty() || this.trail != null) {
+            return domain.size();
+        }
+        int lo = domain.first(), hi = domain.last();
+        boolean constrained = false, apart = false;
+        for (int arc : this.index.arcsFrom(m)) {
+            int b = this.assignment[this.index.head(arc)];
+            if (b == MeetingDomain.NONE) {
+                continue;
+            }
+            constrained = true;
+            switch (this.index.op(arc)) {
+            case LT: hi = Math.min(hi, b - 1); break;
+            case LE: hi = Math.min(hi, b); break;
+            case GT: lo = Math.max(lo, b + 1); break;
+            case GE: lo = Math.max(lo, b); break;
+            case EQ: lo = Math.max(lo, b); hi = Math.min(hi, b); break;
+            default: apart = true;
+            }
+        }
+        if (!constrained) {
+            return domain.size();
+        }
+        int count = 0;
+        for (int day = (lo > hi) ? MeetingDomain.NONE : domain.next(lo);
+                day != MeetingDomain.NONE && day <= hi && count <= bound; day = domain.next(day + 1)) {
+            if (!apart || this.isApart(m, day)) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * @return Whether or not day differs from the day of every assigned
+     *         meeting m must not share a day with.
+     */
+    private boolean isApart (int m, int day) {
+        for (int arc : this.index.arcsFrom(m)) {
+            if (this.index.op(arc) == DateOp.NE && this.assignment[this.index.head(arc)] == day) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private int unassignedDegree (int m) {
+        int degree = 0;
+        for (int arc : this.index.arcsFrom(m)) {
+            if (this.assignment[this.index.head(arc)] == MeetingDomain.NONE) {
+                degree++;
+            }
+        }
+        return degree;
+    }
+
+}
@@ -1,7 +1,5 @@
 package main.csp;
 
-import java.util.*;
-
 /**
  * BinaryDateConstraints are those in which two variables
  * are being compared by some operator, specified by an
@@ -14,6 +12,12 @@ import java.util.*;
 public class BinaryDateConstraint extends DateConstraint {
 
     public final int R_VAL;
+
+    // Canonical form, oriented from the lower meeting index, so that a
+    // constraint and its reverse compare and hash alike without allocating
+    private final int low, high;
+    private final DateOp lowOp;
+    private final int hash;
     
     /**
      * Constructs a new BinaryDateConstraint relating two Meeting Variable indexes
@@ -31,6 +35,11 @@ public class BinaryDateConstraint extends DateConstraint {
         }
         
         this.R_VAL = rVal;
+        boolean swapped = lVal > rVal;
+        this.low = swapped ? rVal : lVal;
+        this.high = swapped ? lVal : rVal;
+        this.lowOp = swapped ? this.OPERATOR.symmetric() : this.OPERATOR;
+        this.hash = DateConstraint.hash(this.low, this.lowOp.ordinal(), this.high);
     }
     
     /**
@@ -47,16 +56,15 @@ public class BinaryDateConstraint extends DateConstraint {
     @Override
     public boolean equals (Object other) {
         if (this == other) { return true; }
-        if (this.getClass() != other.getClass()) { return false; }
+        if (other == null || this.getClass() != other.getClass()) { return false; }
         BinaryDateConstraint otherDC = (BinaryDateConstraint) other;
-        BinaryDateConstraint reversed = this.getReverse();
-        return (this.L_VAL == otherDC.L_VAL && this.OP.equals(otherDC.OP) && this.R_VAL == otherDC.R_VAL) ||
-               (reversed.R_VAL == otherDC.L_VAL && reversed.OP.equals(otherDC.OP) && reversed.L_VAL == otherDC.R_VAL);
+        return this.hash == otherDC.hash && this.low == otherDC.low &&
+               this.lowOp == otherDC.lowOp && this.high == otherDC.high;
     }
     
     @Override
     public int hashCode () {
-        return Objects.hash(this.L_VAL) * Objects.hash(this.OP) * Objects.hash(this.R_VAL);
+        return this.hash;
     }
     
     @Override
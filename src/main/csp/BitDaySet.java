@@ -0,0 +1,228 @@
+package main.csp;
+
+/**
+ * Compact set of dates, each represented by its epoch day, backed by a
+ * long[] bitset in which bit i corresponds to the day ORIGIN + i.
+ * Membership tests and removals are O(1), the size is maintained on
+ * every removal, and ascending iteration skips over whole empty words.
+ *
+ * Truncations only move the [lo, hi] window of days that are considered
+ * members, popcounting the bits that fall out of it.
+ */
+public class BitDaySet implements DaySet {
+
+    public final int ORIGIN;
+
+    private final long[] words;
+    private int lo, hi, size;
+
+    /**
+     * Constructs a new BitDaySet containing every day between first and
+     * last (inclusive). If last precedes first, the set is empty.
+     * @param first The epoch day of the first member (and origin of the bitset).
+     * @param last The epoch day of the last member.
+     */
+    public BitDaySet (int first, int last) {
+        int span = Math.max(0, last - first + 1);
+        this.ORIGIN = first;
+        this.words = new long[(span + 63) >>> 6];
+        for (int i = 0; i < span >>> 6; i++) {
+            this.words[i] = -1L;
+        }
+        if ((span & 63) != 0) {
+            this.words[this.words.length - 1] = (1L << (span & 63)) - 1;
+        }
+        this.lo = first;
+        this.hi = first + span - 1;
+        this.size = span;
+    }
+
+    /**
+     * Copy-constructor for a BitDaySet that initializes it with the same
+     * members as the other.
+     * @param other Other BitDaySet from which to make a copy.
+     */
+    public BitDaySet (BitDaySet other) {
+        this.ORIGIN = other.ORIGIN;
+        this.words = other.words.clone();
+        this.lo = other.lo;
+        this.hi = other.hi;
+        this.size = other.size;
+    }
+
+    /**
+     * Constructs a BitDaySet over the given words, which it takes ownership of.
+     * @param origin The epoch day of bit 0.
+     * @param words The bitset words.
+     * @param lo The window start.
+     * @param hi The window end.
+     * @param size The number of set bits within [lo, hi].
+     */
+    BitDaySet (int origin, long[] words, int lo, int hi, int size) {
+        this.ORIGIN = origin;
+        this.words = words;
+        this.lo = lo;
+        this.hi = hi;
+        this.size = size;
+    }
+
+    /**
+     * @param w A word index.
+     * @return The raw bitset word at that index, ignoring the window.
+     */
+    long word (int w) {
+        return this.words[w];
+    }
+
+    @Override
+    public int size () {
+        return this.size;
+    }
+
+    @Override
+    public boolean contains (int day) {
+        if (day < this.lo || day > this.hi) {
+            return false;
+        }
+        int i = day - this.ORIGIN;
+        return (this.words[i >>> 6] & (1L << i)) != 0;
+    }
+
+    @Override
+    public boolean remove (int day) {
+        if (!this.contains(day)) {
+            return false;
+        }
+        int i = day - this.ORIGIN;
+        this.words[i >>> 6] &= ~(1L << i);
+        this.size--;
+        return true;
+    }
+
+    @Override
+    public void restore (int day) {
+        int i = day - this.ORIGIN;
+        this.words[i >>> 6] |= 1L << i;
+        this.size++;
+    }
+
+    @Override
+    public int windowStart () {
+        return this.lo;
+    }
+
+    @Override
+    public int windowEnd () {
+        return this.hi;
+    }
+
+    @Override
+    public void restoreWindow (int lo, int hi, int size) {
+        this.lo = lo;
+        this.hi = hi;
+        this.size = size;
+    }
+
+    @Override
+    public boolean removeBefore (int day) {
+        if (day <= this.lo) {
+            return false;
+        }
+        int cutTo = Math.min(day - 1, this.hi),
+            removed = (cutTo >= this.lo) ? this.countBits(this.lo, cutTo) : 0;
+        this.lo = day;
+        this.size -= removed;
+        return removed > 0;
+    }
+
+    @Override
+    public boolean removeAfter (int day) {
+        if (day >= this.hi) {
+            return false;
+        }
+        int cutFrom = Math.max(day + 1, this.lo),
+            removed = (cutFrom <= this.hi) ? this.countBits(cutFrom, this.hi) : 0;
+        this.hi = day;
+        this.size -= removed;
+        return removed > 0;
+    }
+
+    /**
+     * Returns the smallest member that is greater than or equal to the
+     * given day, akin to BitSet's nextSetBit.
+     */
+    @Override
+    public int next (int day) {
+        int from = Math.max(day, this.lo);
+        if (from > this.hi) {
+            return MeetingDomain.NONE;
+        }
+        int i = from - this.ORIGIN, w = i >>> 6;
+        long word = this.words[w] & (-1L << i);
+        while (word == 0) {
+            if (++w == this.words.length) {
+                return MeetingDomain.NONE;
+            }
+            word = this.words[w];
+        }
+        int found = this.ORIGIN + (w << 6) + Long.numberOfTrailingZeros(word);
+        return (found <= this.hi) ? found : MeetingDomain.NONE;
+    }
+
+    /**
+     * Returns the largest member that is less than or equal to the
+     * given day, akin to BitSet's previousSetBit.
+     */
+    @Override
+    public int prev (int day) {
+        int to = Math.min(day, this.hi);
+        if (to < this.lo) {
+            return MeetingDomain.NONE;
+        }
+        int i = to - this.ORIGIN, w = i >>> 6;
+        long word = this.words[w] & (-1L >>> (63 - (i & 63)));
+        while (word == 0) {
+            if (--w < 0) {
+                return MeetingDomain.NONE;
+            }
+            word = this.words[w];
+        }
+        int found = this.ORIGIN + (w << 6) + 63 - Long.numberOfLeadingZeros(word);
+        return (found >= this.lo) ? found : MeetingDomain.NONE;
+    }
+
+    @Override
+    public BitDaySet copy () {
+        return new BitDaySet(this);
+    }
+
+    @Override
+    public int count (int from, int to) {
+        from = Math.max(from, this.lo);
+        to = Math.min(to, this.hi);
+        return (from <= to) ? this.countBits(from, to) : 0;
+    }
+
+    /**
+     * Counts the set bits for the days between from and to (inclusive), both
+     * of which must lie within the bitset.
+     * @param from The first epoch day to count.
+     * @param to The last epoch day to count.
+     * @return The number of set bits in that range.
+     */
+    private int countBits (int from, int to) {
+        int i = from - this.ORIGIN, j = to - this.ORIGIN,
+            wi = i >>> 6, wj = j >>> 6;
+        long firstMask = -1L << i,
+             lastMask = -1L >>> (63 - (j & 63));
+        if (wi == wj) {
+            return Long.bitCount(this.words[wi] & firstMask & lastMask);
+        }
+        int total = Long.bitCount(this.words[wi] & firstMask);
+        for (int w = wi + 1; w < wj; w++) {
+            total += Long.bitCount(this.words[w]);
+        }
+        return total + Long.bitCount(this.words[wj] & lastMask);
+    }
+
+}
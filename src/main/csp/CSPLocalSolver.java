@@ -40,6 +40,10 @@ public class CSPLocalSolver extends CSPSolver {
      *         indexed by the variable they satisfy, or null if no solution exists.
      */
     public static List<LocalDate> solve (int nMeetings, LocalDate rangeStart, LocalDate rangeEnd, Set<DateConstraint> constraints) {
+        NormalizedConstraints normalized = NormalizedConstraints.of(nMeetings, rangeStart, rangeEnd, constraints);
+        if (normalized.UNSATISFIABLE) {
+            return null;
+        }
         throw new UnsupportedOperationException();
     }
     
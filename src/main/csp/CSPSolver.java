@@ -1,11 +1,8 @@
 package main.csp;
 
-import java.security.KeyStore.LoadStoreParameter;
 import java.time.LocalDate;
 import java.util.*;
-import java.util.concurrent.RecursiveAction;
-
-import javax.swing.text.StyledEditorKit.BoldAction;
+import java.util.concurrent.*;
 
 /**
  * CSP: Calendar Satisfaction Problem Solver
@@ -15,6 +12,44 @@ import javax.swing.text.StyledEditorKit.BoldAction;
  */
 public class CSPSolver {
 
+    // Solver Constants
+    // --------------------------------------------------------------------------------------------------------------
+
+    /**
+     * Date ranges spanning at least this many days are given interval-list
+     * domains instead of bitsets, since they are cheaper to build and truncate.
+     */
+    public static final int INTERVAL_DOMAIN_DAYS = 2 * 366;
+
+    /**
+     * Fewest arcs Propagation.PARALLEL hands to one task, so that graphs of
+     * many small components are not split into more tasks than they're worth.
+     */
+    public static final int PARALLEL_BATCH_ARCS = 4096;
+
+    // Propagation Trace
+    // --------------------------------------------------------------------------------------------------------------
+
+    // Read once per propagation, so that revisions pay a null check at most
+    private static volatile PropagationTrace trace;
+
+    /**
+     * Installs the given trace to record every arc revised by AC-3
+     * propagation from now on, in any thread, or removes the one installed.
+     *
+     * @param trace The trace to record to, or null to stop tracing
+     */
+    public static void setTrace(PropagationTrace trace) {
+        CSPSolver.trace = trace;
+    }
+
+    /**
+     * @return The trace installed, or null if propagation is not traced.
+     */
+    public static PropagationTrace getTrace() {
+        return trace;
+    }
+
     // Backtracking CSP Solver
     // --------------------------------------------------------------------------------------------------------------
 
@@ -37,85 +72,81 @@ public class CSPSolver {
      */
     public static List<LocalDate> solve(int nMeetings, LocalDate rangeStart, LocalDate rangeEnd,
             Set<DateConstraint> constraints) {
-
-        ArrayList<MeetingDomain> domains = new ArrayList<>();
-        for (int i = 0; i < nMeetings; i++) {
-            MeetingDomain meeting = new MeetingDomain(rangeStart, rangeEnd);
-            domains.add(meeting);
-        }
-        nodeConsistency(domains, constraints);
-        arcConsistency(domains, constraints);
-        return recursiveBacktracking(new ArrayList<LocalDate>(), constraints, domains, nMeetings);
+        return solve(nMeetings, rangeStart, rangeEnd, constraints, new SolverOptions());
     }
 
     /**
-     * Implements csp backtracking in order to recursively solve the csp
+     * As solve(nMeetings, rangeStart, rangeEnd, constraints), with the
+     * preprocessing before search chosen by options.
      * 
-     * @param assignment  list of local dates that holds the dates for the meetings
-     * @param constraints Date constraints on the meeting times (unary and binary
-     *                    for this assignment)
-     * @param domains     list of meeting domains which are indexed by meeting
-     *                    variable
      * @param nMeetings   The number of meetings that must be scheduled, indexed
      *                    from 0 to n-1
-     *
+     * @param rangeStart  The start date (inclusive) of the domains of each of the n
+     *                    meeting-variables
+     * @param rangeEnd    The end date (inclusive) of the domains of each of the n
+     *                    meeting-variables
+     * @param constraints Date constraints on the meeting times (unary and binary
+     *                    for this assignment)
+     * @param options     The propagation and consistency settings to solve with
      * @return A list of dates that satisfies each of the constraints for each of
      *         the n meetings,
      *         indexed by the variable they satisfy, or null if no solution exists.
      */
-    private static List<LocalDate> recursiveBacktracking(ArrayList<LocalDate> assignment,
-            Set<DateConstraint> constraints,
-            ArrayList<MeetingDomain> domains, int nMeetings) {
+    public static List<LocalDate> solve(int nMeetings, LocalDate rangeStart, LocalDate rangeEnd,
+            Set<DateConstraint> constraints, SolverOptions options) {
 
-        if (assignment.size() == nMeetings) {
-            return assignment;
+        NormalizedConstraints normalized = NormalizedConstraints.of(nMeetings, rangeStart, rangeEnd, constraints);
+        if (normalized.UNSATISFIABLE) {
+            return noSolution();
         }
-        for (MeetingDomain value : domains) {
-            for (LocalDate date : value.domainValues) {
-                assignment.add(date);
-                if (isSatisfied(assignment, constraints)) {
-                    List<LocalDate> result = recursiveBacktracking(assignment, constraints, domains, nMeetings);
-                    if (result != null) {
-                        return result;
-                    }
-                }
-                assignment.remove(assignment.size() - 1);
+        constraints = normalized.CONSTRAINTS;
+
+        int first = MeetingDomain.toEpochDay(rangeStart), last = MeetingDomain.toEpochDay(rangeEnd);
+        DaySet base = (last - first >= INTERVAL_DOMAIN_DAYS)
+                ? new IntervalDaySet(first, last)
+                : new BitDaySet(first, last);
+        ArrayList<MeetingDomain> domains = new ArrayList<>();
+        for (int i = 0; i < nMeetings; i++) {
+            MeetingDomain meeting = MeetingDomain.viewOf(base);
+            domains.add(meeting);
+        }
+        ConstraintIndex index = new ConstraintIndex(nMeetings, constraints);
+        nodeConsistency(domains, constraints);
+        if (!arcConsistency(domains, index, options.propagation())) {
+            return noSolution();
+        }
+        if (options.singletonConsistency() && !SingletonArcConsistency.propagate(domains, index)) {
+            return noSolution();
+        }
+        if (options.pathConsistency()) {
+            PathConsistency pc = PathConsistency.of(domains, constraints);
+            if (pc.UNSATISFIABLE) {
+                return noSolution();
             }
+            index = new ConstraintIndex(nMeetings, pc.CONSTRAINTS);
         }
-        return null;
+        int[] assignment = new BacktrackingSearch(domains, index, options).solve();
+        if (assignment == null) {
+            return noSolution();
+        }
+        List<LocalDate> solution = new ArrayList<>(nMeetings);
+        for (int day : assignment) {
+            solution.add(LocalDate.ofEpochDay(day));
+        }
+        return solution;
     }
 
     /**
-     * informs on whether or not the given assignments satify the given constraints
+     * Dumps the trace installed, if it is to be dumped on failure.
      * 
-     * @param assignment  list of local dates that holds the dates for the meetings
-     * @param constraints Date constraints on the meeting times (unary and binary
-     *
-     * @return true or false to whether or not two dates are satisfied by the
-     *         constraints
+     * @return null, for solve to return.
      */
-    private static boolean isSatisfied(ArrayList<LocalDate> assignment, Set<DateConstraint> constraints) {
-
-        for (DateConstraint date : constraints) {
-            if (date.L_VAL >= assignment.size()) {
-                continue;
-            }
-            LocalDate leftDate = assignment.get(date.L_VAL);
-            LocalDate rightDate;
-            if (date.arity() == 1) {
-                rightDate = ((UnaryDateConstraint) date).R_VAL;
-            } else {
-                BinaryDateConstraint binaryDate = ((BinaryDateConstraint) date);
-                if (binaryDate.R_VAL >= assignment.size()) {
-                    continue;
-                }
-                rightDate = assignment.get(binaryDate.R_VAL);
-            }
-            if (!date.isSatisfiedBy(leftDate, rightDate)) {
-                return false;
-            }
+    private static List<LocalDate> noSolution() {
+        PropagationTrace trace = CSPSolver.trace;
+        if (trace != null) {
+            trace.failed();
         }
-        return true;
+        return null;
     }
 
     // Filtering Operations
@@ -126,6 +157,9 @@ public class CSPSolver {
      * based on
      * the given constraints. Meetings' domains correspond to their index in the
      * varDomains List.
+     * Each meeting's unary constraints are folded into one UnaryRestriction
+     * and applied as two bound truncations plus one removal per !=, so this
+     * is O(#unary constraints) rather than O(#unary constraints * d).
      * 
      * @param varDomains  List of MeetingDomains in which index i corresponds to D_i
      * @param constraints Set of DateConstraints specifying how the domains should
@@ -136,22 +170,17 @@ public class CSPSolver {
      */
     public static void nodeConsistency(List<MeetingDomain> varDomains, Set<DateConstraint> constraints) {
 
+        // Fold every unary constraint on a meeting together before touching its domain
+        Map<Integer, UnaryRestriction> restrictions = new HashMap<>();
         for (DateConstraint date : constraints) {
             if (date.arity() == 1) {
-                varDomains.get((date.L_VAL));
-                LocalDate rightDate = ((UnaryDateConstraint) date).R_VAL;
-                Set<LocalDate> tempAssignment = new HashSet<>();
-                for (LocalDate domain : varDomains.get((date.L_VAL)).domainValues) {
-                    tempAssignment.add(domain);
-                    if (date.isSatisfiedBy(domain, rightDate)) {
-                        continue;
-                    } else {
-                        tempAssignment.remove(domain);
-                    }
-                }
-                varDomains.get((date.L_VAL)).domainValues = tempAssignment;
+                restrictions.computeIfAbsent(date.L_VAL, meeting -> new UnaryRestriction())
+                        .add((UnaryDateConstraint) date);
             }
         }
+        for (Map.Entry<Integer, UnaryRestriction> restriction : restrictions.entrySet()) {
+            restriction.getValue().applyTo(varDomains.get(restriction.getKey()));
+        }
     }
 
     /**
@@ -168,124 +197,385 @@ public class CSPSolver {
      *                    the *binary* constraints using the AC-3 algorithm!
      */
     public static void arcConsistency(List<MeetingDomain> varDomains, Set<DateConstraint> constraints) {
-        Set<Arc> cspArcs = new HashSet<>();
+        arcConsistency(varDomains, new ConstraintIndex(varDomains.size(), constraints));
+    }
 
-        for (DateConstraint dateConstraint : constraints) {
-            if (dateConstraint.arity() == 2) {
+    /**
+     * Enforces arc consistency over the arcs of an already compiled
+     * ConstraintIndex with the default Propagation.AC3 engine.
+     *
+     * @param varDomains List of MeetingDomains in which index i corresponds to D_i
+     * @param index      The binary constraints on those meetings
+     * @return false if some domain is or has been emptied, in which case no solution
+     *         exists.
+     */
+    public static boolean arcConsistency(List<MeetingDomain> varDomains, ConstraintIndex index) {
+        return arcConsistency(varDomains, index, Propagation.AC3);
+    }
 
-                int binaryLeftDate = dateConstraint.L_VAL;
-                BinaryDateConstraint binaryRightConstraint = ((BinaryDateConstraint) dateConstraint);
-                Arc arc1 = new Arc(binaryLeftDate, binaryRightConstraint.R_VAL, dateConstraint);
-                Arc arc2 = new Arc(binaryRightConstraint.R_VAL, binaryLeftDate, binaryRightConstraint.getReverse());
-                cspArcs.add(arc1);
-                cspArcs.add(arc2);
+    /**
+     * AC-3 over the arcs of an already compiled ConstraintIndex, with an
+     * ArcQueue as the worklist. Once an arc's tail is revised, only the arcs
+     * arriving at that tail are queued again, in O(degree). Propagation.AC6
+     * is delegated to AC6Propagator instead.
+     *
+     * @param varDomains  List of MeetingDomains in which index i corresponds to D_i
+     * @param index       The binary constraints on those meetings
+     * @param propagation The engine to propagate them with
+     * @return false if some domain is or has been emptied, in which case no solution
+     *         exists. The emptiness is still propagated to every connected
+     *         domain, as AC-3 would.
+     */
+    public static boolean arcConsistency(List<MeetingDomain> varDomains, ConstraintIndex index,
+            Propagation propagation) {
+        if (propagation == Propagation.AC6) {
+            return AC6Propagator.propagate(varDomains, index);
+        }
+        boolean consistent = true;
+        for (MeetingDomain domain : varDomains) {
+            consistent &= !domain.isEmpty();
+        }
+        int[] arcs = seedOrder(index, propagation != Propagation.AC3_GENERIC);
+        if (propagation == Propagation.PARALLEL) {
+            return parallelArcConsistency(varDomains, index, arcs) & consistent;
+        }
+        return propagate(varDomains, index, propagation, arcs) & consistent;
+    }
+
+    /**
+     * Runs AC-3 to its fixpoint from the given arcs, queued in order.
+     *
+     * @param varDomains  List of MeetingDomains in which index i corresponds to D_i
+     * @param index       The binary constraints on those meetings
+     * @param propagation The engine to propagate them with, one of AC3, BOUNDS
+     *                    or AC3_GENERIC
+     * @param arcs        The arcs to revise first, which must include every
+     *                    arc that may be queued again, such as all the arcs
+     *                    of some components of the constraint graph
+     * @return false if some domain has been emptied.
+     */
+    private static boolean propagate(List<MeetingDomain> varDomains, ConstraintIndex index,
+            Propagation propagation, int[] arcs) {
+        ArcQueue queue = new ArcQueue(index.arcs(), arcs.length);
+        for (int arc : arcs) {
+            queue.add(arc);
+        }
+        return propagate(varDomains, index, propagation, queue);
+    }
+
+    /**
+     * Runs AC-3 to its fixpoint from the arcs already in the given queue,
+     * which is left empty.
+     *
+     * @param varDomains  List of MeetingDomains in which index i corresponds to D_i
+     * @param index       The binary constraints on those meetings
+     * @param propagation The engine to propagate them with, one of AC3, BOUNDS
+     *                    or AC3_GENERIC
+     * @param queue       The arcs to revise, with room for every arc that may
+     *                    be queued again
+     * @return false if some domain has been emptied.
+     */
+    static boolean propagate(List<MeetingDomain> varDomains, ConstraintIndex index,
+            Propagation propagation, ArcQueue queue) {
+        return propagate(varDomains, index, propagation, queue, true);
+    }
+
+    /**
+     * Runs AC-3 from the arcs already in the given queue as propagate does,
+     * but gives up at the first domain emptied rather than propagating its
+     * emptiness through the rest of its component. Meant for search, where
+     * a wipeout only means backtracking. The queue is left empty either way.
+     *
+     * @param varDomains  List of MeetingDomains in which index i corresponds to D_i
+     * @param index       The binary constraints on those meetings
+     * @param propagation The engine to propagate them with, one of AC3, BOUNDS
+     *                    or AC3_GENERIC
+     * @param queue       The arcs to revise, with room for every arc that may
+     *                    be queued again
+     * @return false if some domain has been emptied, in which case the others
+     *         may not have reached the fixpoint.
+     */
+    static boolean propagateUntilWipeout(List<MeetingDomain> varDomains, ConstraintIndex index,
+            Propagation propagation, ArcQueue queue) {
+        return propagate(varDomains, index, propagation, queue, false);
+    }
+
+    private static boolean propagate(List<MeetingDomain> varDomains, ConstraintIndex index,
+            Propagation propagation, ArcQueue queue, boolean drain) {
+        ResidualSupports residues = (propagation == Propagation.AC3_GENERIC)
+                ? new ResidualSupports(index.arcs())
+                : null;
+        PropagationTrace trace = CSPSolver.trace;
+        boolean consistent = true;
+        while (!queue.isEmpty()) {
+            int arc = queue.poll();
+            int before = (trace != null) ? varDomains.get(index.tail(arc)).size() : 0;
+            boolean revised = (propagation == Propagation.AC3_GENERIC)
+                    ? removeInconsistentValues(arc, index, residues, varDomains)
+                    : revise(arc, index, varDomains, propagation == Propagation.BOUNDS);
+            if (revised) {
+                int tail = index.tail(arc);
+                boolean wipedOut = varDomains.get(tail).isEmpty();
+                consistent &= !wipedOut;
+                // Unless tail has been emptied, the reverse arc needs no revision:
+                // every value left in tail is supported by head, which is unchanged.
+                // Not so for bounds, as tail's new bound may skip past the days
+                // that supported head's
+                boolean reverse = wipedOut || propagation == Propagation.BOUNDS;
+                for (int incoming : index.arcsInto(tail)) {
+                    if (incoming != (arc ^ 1) || reverse) {
+                        queue.add(incoming);
+                    }
+                }
+                // Bounds != compares head's day to tail's own bounds, which just moved
+                if (propagation == Propagation.BOUNDS) {
+                    for (int outgoing : index.arcsFrom(tail)) {
+                        if (index.op(outgoing) == DateOp.NE) {
+                            queue.add(outgoing);
+                        }
+                    }
+                }
+            }
+            if (trace != null) {
+                int after = varDomains.get(index.tail(arc)).size();
+                trace.revision(arc, index, before - after, after, queue.size());
+            }
+            if (!consistent && !drain) {
+                queue.clear();
+                return false;
+            }
+        }
+        return consistent;
+    }
+
+    /**
+     * AC-3 run on every connected component of the constraint graph at once,
+     * on the common ForkJoinPool. Components share no domain, so each task
+     * propagates its own with no locking, and the fixpoint is the same as
+     * sequential AC-3's. Small components are batched together into tasks of
+     * at least PARALLEL_BATCH_ARCS arcs. Domains attached to a Trail, which
+     * is not thread-safe, are propagated sequentially instead.
+     *
+     * @param varDomains List of MeetingDomains in which index i corresponds to D_i
+     * @param index      The binary constraints on those meetings
+     * @param arcs       Every arc of index, in the order to queue them
+     * @return false if some domain has been emptied.
+     */
+    private static boolean parallelArcConsistency(List<MeetingDomain> varDomains, ConstraintIndex index,
+            int[] arcs) {
+        for (MeetingDomain domain : varDomains) {
+            if (domain.trail != null) {
+                return propagate(varDomains, index, Propagation.AC3, arcs);
             }
         }
-        Set<Arc> tempNeighbors = new HashSet<>(cspArcs);
-        while (!cspArcs.isEmpty()) {
-            Iterator<Arc> iterator = cspArcs.iterator();
-            Arc first = iterator.next();
-            iterator.remove();
-            if (removeInconsistentValues(first, varDomains)) {
-                System.out.println(varDomains);
-                for (Arc arcs : tempNeighbors) {
-                    if (arcs.HEAD == first.TAIL) {
-                        cspArcs.add(arcs);
+        // Counting sort of the arcs by component, keeping their order within each
+        int[] component = index.components();
+        int nComponents = 0;
+        for (int label : component) {
+            nComponents = Math.max(nComponents, label + 1);
+        }
+        int[] start = new int[nComponents + 1];
+        for (int arc : arcs) {
+            start[component[index.tail(arc)] + 1]++;
+        }
+        for (int c = 0; c < nComponents; c++) {
+            start[c + 1] += start[c];
+        }
+        int[] sorted = new int[arcs.length], fill = Arrays.copyOf(start, nComponents);
+        for (int arc : arcs) {
+            sorted[fill[component[index.tail(arc)]]++] = arc;
+        }
+
+        int batch = Math.max(PARALLEL_BATCH_ARCS, arcs.length / (4 * ForkJoinPool.getCommonPoolParallelism()));
+        List<Callable<Boolean>> tasks = new ArrayList<>();
+        for (int c = 0, from = 0; c < nComponents; c++) {
+            int to = start[c + 1];
+            if (to > from && (to - from >= batch || c == nComponents - 1)) {
+                int[] slice = Arrays.copyOfRange(sorted, from, to);
+                tasks.add(() -> propagate(varDomains, index, Propagation.AC3, slice));
+                from = to;
+            }
+        }
+        boolean consistent = true;
+        for (boolean result : invokeAll(tasks)) {
+            consistent &= result;
+        }
+        return consistent;
+    }
+
+    /**
+     * Runs the given tasks on the common ForkJoinPool and waits for them all.
+     *
+     * @param tasks The tasks to run, which must not share mutable state
+     * @return Their results, in the order of tasks.
+     */
+    static <T> List<T> invokeAll(List<Callable<T>> tasks) {
+        List<T> results = new ArrayList<>(tasks.size());
+        for (Future<T> task : ForkJoinPool.commonPool().invokeAll(tasks)) {
+            try {
+                results.add(task.get());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException(e);
+            } catch (ExecutionException e) {
+                throw (e.getCause() instanceof RuntimeException)
+                        ? (RuntimeException) e.getCause()
+                        : new IllegalStateException(e.getCause());
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Orders every arc of index for the initial queue. Ordered, the arcs that
+     * carry first days forward ("tail > head", "tail >= head") come by their
+     * head's precedenceOrder, then those that carry last days backward by
+     * their head's reverse order, and the others after them. Chains of
+     * orderings then reach their fixpoint in one pass rather than one day at
+     * a time.
+     *
+     * @param index   The constraints whose arcs to order
+     * @param ordered Whether or not to order the arcs by precedence, rather
+     *                than by index
+     * @return Every arc of index, once each.
+     */
+    private static int[] seedOrder(ConstraintIndex index, boolean ordered) {
+        int[] arcs = new int[index.arcs()];
+        int n = 0;
+        if (ordered) {
+            int[] order = index.precedenceOrder();
+            for (int i = 0; i < order.length; i++) {
+                for (int arc : index.arcsInto(order[i])) {
+                    if (index.op(arc) == DateOp.GT || index.op(arc) == DateOp.GE) {
+                        arcs[n++] = arc;
                     }
                 }
             }
+            for (int i = order.length - 1; i >= 0; i--) {
+                for (int arc : index.arcsInto(order[i])) {
+                    if (index.op(arc) == DateOp.LT || index.op(arc) == DateOp.LE) {
+                        arcs[n++] = arc;
+                    }
+                }
+            }
+        }
+        for (int arc = 0; arc < index.arcs(); arc++) {
+            DateOp op = index.op(arc);
+            if (!ordered || op == DateOp.EQ || op == DateOp.NE) {
+                arcs[n++] = arc;
+            }
         }
+        return arcs;
     }
 
     /**
      * takes in an arc and list of meeting domains and pruned the values that are
-     * unnecessary
+     * unnecessary, AC-3rm style: each tail day first checks its residual
+     * support, and only rescans head, up to its first support, once that
+     * residue has been pruned. A support found is recorded for both
+     * directions of the arc.
+     * A rescan resumes at the last support found for the day, AC-2001 style,
+     * rather than at head's first day. Orderings also bound the scans by
+     * being monotone: under < and <= the first support of a tail day is no
+     * earlier than the previous tail day's, and under > and >= a head day
+     * that fails leaves none after it to support, so that the first revision
+     * of an ordering is O(d) rather than O(d^2).
      * 
-     * @param tailOrHead an arc in which the head and tail are the meeting indexes
-     *                   corresponding with Meeting variables and their associated
-     *                   domains.
+     * @param arc        an arc of index, whose head and tail are the meeting
+     *                   indexes corresponding with Meeting variables and their
+     *                   associated domains.
+     * @param index      The constraints the arc belongs to
+     * @param residues   The last support found for each arc and tail day,
+     *                   during this propagation only
      * @param varDomains List of MeetingDomains in which index i corresponds to D_i
      *
      * @return true or false to whether or inconsistent values have been removed
      */
-    private static Boolean removeInconsistentValues(Arc tailOrHead, List<MeetingDomain> varDomains) {
+    private static boolean removeInconsistentValues(int arc, ConstraintIndex index, ResidualSupports residues,
+            List<MeetingDomain> varDomains) {
 
         boolean removed = false;
-        List<LocalDate> temp = new ArrayList<>();
-        for (LocalDate tailDate : varDomains.get(tailOrHead.TAIL).domainValues) {
-            boolean isSatisfied = false;
-            for (LocalDate headDate : varDomains.get(tailOrHead.HEAD).domainValues) {
-                if (tailOrHead.CONSTRAINT.isSatisfiedBy(tailDate, headDate)) {
-                    isSatisfied = true;
-                }
+        MeetingDomain tail = varDomains.get(index.tail(arc)),
+                      head = varDomains.get(index.head(arc));
+        DateOp op = index.op(arc);
+        boolean ascending = op == DateOp.LT || op == DateOp.LE,
+                descending = op == DateOp.GT || op == DateOp.GE;
+        int previous = MeetingDomain.NONE;
+        for (int tailDay = tail.first(); tailDay != MeetingDomain.NONE; tailDay = tail.next(tailDay + 1)) {
+            int residue = residues.get(arc, tailDay);
+            if (residue != MeetingDomain.NONE && head.contains(residue)) {
+                continue;
+            }
+            int from = residues.last(arc, tailDay);
+            if (ascending && previous != MeetingDomain.NONE && (from == MeetingDomain.NONE || previous > from)) {
+                from = previous;
             }
-            if (!isSatisfied) {
-                temp.add(tailDate);
+            int support = (from == MeetingDomain.NONE) ? head.first() : head.next(from);
+            while (support != MeetingDomain.NONE && !op.test(tailDay, support)) {
+                support = descending ? MeetingDomain.NONE : head.next(support + 1);
+            }
+            if (support == MeetingDomain.NONE) {
+                tail.remove(tailDay);
                 removed = true;
+            } else {
+                residues.found(arc, tail, tailDay, support);
+                residues.set(arc ^ 1, head, support, tailDay);
+                previous = support;
             }
         }
-        varDomains.get(tailOrHead.TAIL).domainValues.removeAll(temp);
         return removed;
     }
 
     /**
-     * Private helper class organizing Arcs as defined by the AC-3 algorithm, useful
-     * for implementing the
-     * arcConsistency method.
-     * [!] You may modify this class however you'd like, its basis is just a
-     * suggestion that will indeed work.
+     * Revises the tail of the given arc against its head using what each
+     * operator's support looks like, rather than testing pairs of days:
+     * - tail < head (or <=) is supported iff it is before (or on) head's last day
+     * - tail > head (or >=) is supported iff it is after (or on) head's first day
+     * - tail != head is supported unless head is down to that one day
+     * - tail == head is supported iff head contains it
+     * so that orderings cost O(1) window truncations, != O(1), and == O(d).
+     * For bounds consistency, == only truncates tail to head's first and last
+     * days, and != only removes tail's own first or last day.
+     *
+     * @param arc        an arc of index
+     * @param index      The constraints the arc belongs to
+     * @param varDomains List of MeetingDomains in which index i corresponds to D_i
+     * @param bounds     Whether or not to only make tail's bounds consistent
+     * @return true or false to whether or inconsistent values have been removed
      */
-    private static class Arc {
-
-        public final DateConstraint CONSTRAINT;
-        public final int TAIL, HEAD;
-
-        /**
-         * Constructs a new Arc (tail -> head) where head and tail are the meeting
-         * indexes
-         * corresponding with Meeting variables and their associated domains.
-         * 
-         * @param tail Meeting index of the tail
-         * @param head Meeting index of the head
-         * @param c    Constraint represented by this Arc.
-         *             [!] WARNING: A DateConstraint's isSatisfiedBy method is
-         *             parameterized as:
-         *             isSatisfiedBy (LocalDate leftDate, LocalDate rightDate), meaning
-         *             L_VAL for the first
-         *             parameter and R_VAL for the second. Be careful with this when
-         *             creating Arcs that reverse
-         *             direction. You may find the BinaryDateConstraint's getReverse
-         *             method useful here.
-         */
-        public Arc(int tail, int head, DateConstraint c) {
-            this.TAIL = tail;
-            this.HEAD = head;
-            this.CONSTRAINT = c;
+    private static boolean revise(int arc, ConstraintIndex index, List<MeetingDomain> varDomains, boolean bounds) {
+        MeetingDomain tail = varDomains.get(index.tail(arc)),
+                      head = varDomains.get(index.head(arc));
+        if (tail.isEmpty()) {
+            return false;
         }
-
-        @Override
-        public boolean equals(Object other) {
-            if (this == other) {
-                return true;
-            }
-            if (this.getClass() != other.getClass()) {
+        if (head.isEmpty()) {
+            return tail.removeAfter(tail.first() - 1);
+        }
+        switch (index.op(arc)) {
+        case LT: return tail.removeAfter(head.last() - 1);
+        case LE: return tail.removeAfter(head.last());
+        case GT: return tail.removeBefore(head.first() + 1);
+        case GE: return tail.removeBefore(head.first());
+        case NE:
+            int only = head.first();
+            if (head.last() != only) {
                 return false;
             }
-            Arc otherArc = (Arc) other;
-            return this.TAIL == otherArc.TAIL && this.HEAD == otherArc.HEAD
-                    && this.CONSTRAINT.equals(otherArc.CONSTRAINT);
-        }
-
-        @Override
-        public int hashCode() {
-            return Objects.hash(this.TAIL, this.HEAD, this.CONSTRAINT);
-        }
-
-        @Override
-        public String toString() {
-            return "(" + this.TAIL + " -> " + this.HEAD + ")";
+            return (!bounds || only == tail.first() || only == tail.last()) && tail.remove(only);
+        default:
+            if (bounds) {
+                return tail.removeBefore(head.first()) | tail.removeAfter(head.last());
+            }
+            boolean removed = false;
+            for (int tailDay = tail.first(); tailDay != MeetingDomain.NONE; tailDay = tail.next(tailDay + 1)) {
+                if (!head.contains(tailDay)) {
+                    tail.remove(tailDay);
+                    removed = true;
+                }
+            }
+            return removed;
         }
-
     }
 
 }
@@ -0,0 +1,282 @@
+package main.csp;
+
+import java.util.*;
+
+/**
+ * Constraints compiled into per-meeting adjacency, so that the solver only
+ * ever looks at the constraints that mention a given meeting.
+ *
+ * Each binary constraint L op R is stored as two oriented arcs, numbered
+ * 2k and 2k + 1 for the k-th binary constraint: L -> R with op, and
+ * R -> L with op.symmetric(). An arc's reverse is therefore always arc ^ 1,
+ * and each arc's operator reads "tail op head" from its own tail's side.
+ *
+ * Constraints may be added after compilation, in which case their arcs are
+ * numbered after the existing ones, and the arrays returned by arcsFrom,
+ * arcsInto and unary for the meetings they mention are replaced.
+ */
+public class ConstraintIndex {
+
+    public final int N_MEETINGS;
+
+    private final UnaryDateConstraint[][] unary;
+    private final int[][] arcsFrom, arcsInto;
+    private int[] tails, heads;
+    private DateOp[] ops;
+    private int nArcs;
+
+    /**
+     * Compiles the given constraints over nMeetings meetings.
+     * @param nMeetings The number of meetings, indexed from 0 to n-1
+     * @param constraints Date constraints on the meeting times
+     */
+    public ConstraintIndex (int nMeetings, Set<DateConstraint> constraints) {
+        this.N_MEETINGS = nMeetings;
+        int[] nUnary = new int[nMeetings], nArcs = new int[nMeetings];
+        int nBinary = 0;
+        for (DateConstraint c : constraints) {
+            if (c.arity() == 1) {
+                nUnary[c.L_VAL]++;
+            } else {
+                nArcs[c.L_VAL]++;
+                nArcs[((BinaryDateConstraint) c).R_VAL]++;
+                nBinary++;
+            }
+        }
+
+        this.unary = new UnaryDateConstraint[nMeetings][];
+        this.arcsFrom = new int[nMeetings][];
+        this.arcsInto = new int[nMeetings][];
+        for (int m = 0; m < nMeetings; m++) {
+            this.unary[m] = new UnaryDateConstraint[nUnary[m]];
+            this.arcsFrom[m] = new int[nArcs[m]];
+            this.arcsInto[m] = new int[nArcs[m]];
+        }
+        this.tails = new int[2 * nBinary];
+        this.heads = new int[2 * nBinary];
+        this.ops = new DateOp[2 * nBinary];
+        this.nArcs = 2 * nBinary;
+
+        int arc = 0;
+        for (DateConstraint c : constraints) {
+            if (c.arity() == 1) {
+                this.unary[c.L_VAL][--nUnary[c.L_VAL]] = (UnaryDateConstraint) c;
+            } else {
+                int r = ((BinaryDateConstraint) c).R_VAL;
+                this.addArc(arc++, c.L_VAL, r, c.OPERATOR, nArcs);
+                this.addArc(arc++, r, c.L_VAL, c.OPERATOR.symmetric(), nArcs);
+            }
+        }
+    }
+
+    private void addArc (int arc, int tail, int head, DateOp op, int[] remaining) {
+        this.tails[arc] = tail;
+        this.heads[arc] = head;
+        this.ops[arc] = op;
+        // The reverse arc, head -> tail, is one of those arriving at tail
+        this.arcsFrom[tail][--remaining[tail]] = arc;
+        this.arcsInto[tail][remaining[tail]] = arc ^ 1;
+    }
+
+    /**
+     * Adds the given constraint to this index, in O(degree) of the meetings
+     * it mentions. Duplicates are not detected, and are indexed again.
+     * @param c A date constraint on meetings of this index
+     */
+    public void add (DateConstraint c) {
+        if (c.arity() == 1) {
+            UnaryDateConstraint[] existing = this.unary[c.L_VAL];
+            this.unary[c.L_VAL] = Arrays.copyOf(existing, existing.length + 1);
+            this.unary[c.L_VAL][existing.length] = (UnaryDateConstraint) c;
+            return;
+        }
+        if (this.nArcs + 2 > this.tails.length) {
+            int capacity = Math.max(16, this.tails.length * 2);
+            this.tails = Arrays.copyOf(this.tails, capacity);
+            this.heads = Arrays.copyOf(this.heads, capacity);
+            this.ops = Arrays.copyOf(this.ops, capacity);
+        }
+        int l = c.L_VAL, r = ((BinaryDateConstraint) c).R_VAL, arc = this.nArcs;
+        this.tails[arc] = l;
+        this.heads[arc] = r;
+        this.ops[arc] = c.OPERATOR;
+        this.tails[arc + 1] = r;
+        this.heads[arc + 1] = l;
+        this.ops[arc + 1] = c.OPERATOR.symmetric();
+        this.arcsFrom[l] = append(this.arcsFrom[l], arc);
+        this.arcsInto[l] = append(this.arcsInto[l], arc + 1);
+        this.arcsFrom[r] = append(this.arcsFrom[r], arc + 1);
+        this.arcsInto[r] = append(this.arcsInto[r], arc);
+        this.nArcs += 2;
+    }
+
+    private static int[] append (int[] arcs, int arc) {
+        int[] appended = Arrays.copyOf(arcs, arcs.length + 1);
+        appended[arcs.length] = arc;
+        return appended;
+    }
+
+    /**
+     * @return The number of oriented arcs, twice the number of binary constraints.
+     */
+    public int arcs () {
+        return this.nArcs;
+    }
+
+    /**
+     * @param arc An arc index.
+     * @return The meeting on the tail side of the arc.
+     */
+    public int tail (int arc) {
+        return this.tails[arc];
+    }
+
+    /**
+     * @param arc An arc index.
+     * @return The meeting on the head side of the arc.
+     */
+    public int head (int arc) {
+        return this.heads[arc];
+    }
+
+    /**
+     * @param arc An arc index.
+     * @return The operator such that the arc holds when "tail op head".
+     */
+    public DateOp op (int arc) {
+        return this.ops[arc];
+    }
+
+    /**
+     * @param meeting A meeting index.
+     * @return The arcs whose tail is the given meeting. The array is shared
+     *         and must not be modified.
+     */
+    public int[] arcsFrom (int meeting) {
+        return this.arcsFrom[meeting];
+    }
+
+    /**
+     * @param meeting A meeting index.
+     * @return The arcs whose head is the given meeting, i.e. those to revise
+     *         again once its domain shrinks. The array is shared and must not
+     *         be modified.
+     */
+    public int[] arcsInto (int meeting) {
+        return this.arcsInto[meeting];
+    }
+
+    /**
+     * Orders the meetings such that a meeting comes before every meeting an
+     * arc "tail < head" or "tail <= head" requires it to precede, as far as
+     * those arcs are acyclic. Meetings on a cycle of such arcs, or after one,
+     * come last in index order.
+     * @return Every meeting index, in precedence order.
+     */
+    public int[] precedenceOrder () {
+        int[] preceding = new int[this.N_MEETINGS], order = new int[this.N_MEETINGS];
+        for (int arc = 0; arc < this.nArcs; arc++) {
+            if (this.ops[arc] == DateOp.LT || this.ops[arc] == DateOp.LE) {
+                preceding[this.heads[arc]]++;
+            }
+        }
+        // Kahn's algorithm, with order itself as the queue of ready meetings
+        int ready = 0;
+        for (int m = 0; m < this.N_MEETINGS; m++) {
+            if (preceding[m] == 0) {
+                order[ready++] = m;
+            }
+        }
+        for (int i = 0; i < ready; i++) {
+            for (int arc : this.arcsFrom[order[i]]) {
+                if ((this.ops[arc] == DateOp.LT || this.ops[arc] == DateOp.LE) && --preceding[this.heads[arc]] == 0) {
+                    order[ready++] = this.heads[arc];
+                }
+            }
+        }
+        for (int m = 0; m < this.N_MEETINGS && ready < this.N_MEETINGS; m++) {
+            if (preceding[m] > 0) {
+                order[ready++] = m;
+            }
+        }
+        return order;
+    }
+
+    /**
+     * Labels the connected components of the constraint graph, such that two
+     * meetings share a label if and only if some chain of binary constraints
+     * relates them. Propagation within one component never reads or writes
+     * the domains of another.
+     * @return The component of each meeting, numbered from 0 in order of
+     *         their lowest meeting index.
+     */
+    public int[] components () {
+        int[] parent = new int[this.N_MEETINGS];
+        for (int m = 0; m < this.N_MEETINGS; m++) {
+            parent[m] = m;
+        }
+        for (int arc = 0; arc < this.nArcs; arc += 2) {
+            int a = root(parent, this.tails[arc]), b = root(parent, this.heads[arc]);
+            parent[Math.max(a, b)] = Math.min(a, b);
+        }
+        // Roots are the lowest index of their component, so come first
+        int[] label = new int[this.N_MEETINGS];
+        int nComponents = 0;
+        for (int m = 0; m < this.N_MEETINGS; m++) {
+            int r = root(parent, m);
+            label[m] = (r == m) ? nComponents++ : label[r];
+        }
+        return label;
+    }
+
+    private static int root (int[] parent, int m) {
+        while (parent[m] != m) {
+            parent[m] = parent[parent[m]];
+            m = parent[m];
+        }
+        return m;
+    }
+
+    /**
+     * @param meeting A meeting index.
+     * @return The unary constraints on the given meeting. The array is shared
+     *         and must not be modified.
+     */
+    public UnaryDateConstraint[] unary (int meeting) {
+        return this.unary[meeting];
+    }
+
+    /**
+     * @param meeting A meeting index.
+     * @return The number of binary constraints mentioning the given meeting.
+     */
+    public int degree (int meeting) {
+        return this.arcsFrom[meeting].length;
+    }
+
+    /**
+     * Checks the given meeting's assigned date against its unary constraints
+     * and against its binary constraints with every other assigned meeting.
+     * Costs O(degree) no matter how many constraints there are overall.
+     * @param meeting The meeting just assigned.
+     * @param assignment Epoch days indexed by meeting, MeetingDomain.NONE for
+     *        meetings that are not yet assigned.
+     * @return Whether or not the assignment violates no constraint on meeting.
+     */
+    public boolean isConsistent (int meeting, int[] assignment) {
+        int day = assignment[meeting];
+        for (UnaryDateConstraint c : this.unary[meeting]) {
+            if (!c.OPERATOR.test(day, c.R_DAY)) {
+                return false;
+            }
+        }
+        for (int arc : this.arcsFrom[meeting]) {
+            int headDay = assignment[this.heads[arc]];
+            if (headDay != MeetingDomain.NONE && !this.ops[arc].test(day, headDay)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+}
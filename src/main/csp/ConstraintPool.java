@@ -0,0 +1,46 @@
+package main.csp;
+
+import java.util.*;
+
+/**
+ * Interns date constraints so that every distinct constraint, up to the
+ * direction a binary constraint is written in, is represented by a single
+ * instance. Large constraint sets gathered from several sources then hold
+ * one object per distinct constraint, and compare by reference on a hit.
+ */
+public class ConstraintPool {
+
+    private final Map<DateConstraint, DateConstraint> pool = new HashMap<>();
+
+    /**
+     * Returns the pooled constraint equal to the given one, pooling the given
+     * constraint first if no equal constraint has been seen.
+     * @param c A date constraint
+     * @return The canonical instance of c.
+     */
+    public DateConstraint intern (DateConstraint c) {
+        DateConstraint pooled = this.pool.putIfAbsent(c, c);
+        return pooled == null ? c : pooled;
+    }
+
+    /**
+     * Interns every constraint of the given collection.
+     * @param constraints Date constraints, possibly with duplicates
+     * @return The set of their canonical instances.
+     */
+    public Set<DateConstraint> internAll (Collection<? extends DateConstraint> constraints) {
+        Set<DateConstraint> interned = new HashSet<>();
+        for (DateConstraint c : constraints) {
+            interned.add(this.intern(c));
+        }
+        return interned;
+    }
+
+    /**
+     * @return The number of distinct constraints pooled.
+     */
+    public int size () {
+        return this.pool.size();
+    }
+
+}
@@ -1,7 +1,6 @@
 package main.csp;
 
 import java.time.LocalDate;
-import java.util.*;
 
 /**
  * DateConstraint superclass: all date constraints will have
@@ -12,29 +11,25 @@ public abstract class DateConstraint {
 
     public final int L_VAL;
     public final String OP;
+    public final DateOp OPERATOR;
     public final int ARITY;
     
-    private static final Set<String> LEGAL_OPS = new HashSet<>(
-        Arrays.asList("==", "!=", "<", "<=", ">", ">=")
-    );
-    
     /**
      * Constructs a new DateConstraint object with the given lVal,
      * operator, and arity.
      * @param lVal The index of the meeting variable corresponding to this constraint.
-     * @param operator The comparator from amongst those in LEGAL_OPS
+     * @param operator The comparator, as the SYMBOL of one of the DateOps
      * @param arity The arity of the constraint (1 for unary, 2 for binary)
      */
     public DateConstraint (int lVal, String operator, int arity) {
-        if (!LEGAL_OPS.contains(operator)) {
-            throw new IllegalArgumentException("Invalid constraint operator");
-        }
+        DateOp op = DateOp.of(operator);
         if (lVal < 0) {
             throw new IllegalArgumentException("Invalid variable index");
         }
         
         this.L_VAL = lVal;
-        this.OP = operator;
+        this.OP = op.SYMBOL;
+        this.OPERATOR = op;
         this.ARITY = arity;
     }
     
@@ -46,30 +41,28 @@ public abstract class DateConstraint {
      * @return Whether or not the constraint is satisfied with the given dates.
      */
     public boolean isSatisfiedBy (LocalDate leftDate, LocalDate rightDate) {
-        switch (this.OP) {
-        case "==": return leftDate.isEqual(rightDate);
-        case "!=": return !leftDate.isEqual(rightDate);
-        case ">":  return leftDate.isAfter(rightDate);
-        case "<":  return leftDate.isBefore(rightDate);
-        case ">=": return leftDate.isAfter(rightDate) || leftDate.isEqual(rightDate);
-        case "<=": return leftDate.isBefore(rightDate) || leftDate.isEqual(rightDate);
-        }
-        return false;
+        return this.OPERATOR.test(MeetingDomain.toEpochDay(leftDate), MeetingDomain.toEpochDay(rightDate));
     }
-    
+
+    /**
+     * Epoch-day counterpart of isSatisfiedBy (LocalDate, LocalDate), used by
+     * the solver's inner loops to compare dates without materializing them.
+     * Hot paths may call OPERATOR.test directly.
+     * @param leftDay The epoch day of the LValue to compare in the constraint
+     * @param rightDay The epoch day of the RValue to compare in the constraint
+     * @return Whether or not the constraint is satisfied with the given days.
+     */
+    public boolean isSatisfiedBy (int leftDay, int rightDay) {
+        return this.OPERATOR.test(leftDay, rightDay);
+    }
+
     /**
      * Returns the symmetrical operator of this constraint if the LValue and RValue were swapped.
      * Useful for arc-consistency algorithm.
      * @return The operator symmetrical to this constraint's.
      */
     public String getSymmetricalOp () {
-        switch (this.OP) {
-        case ">":  return "<";
-        case "<":  return ">";
-        case ">=": return "<=";
-        case "<=": return ">=";
-        default:   return this.OP;
-        }
+        return this.OPERATOR.symmetric().SYMBOL;
     }
     
     /**
@@ -85,5 +78,23 @@ public abstract class DateConstraint {
     public String toString () {
         return L_VAL + " " + OP;
     }
+
+    /**
+     * Combines three ints into a well-distributed hash code (Murmur3's
+     * finalizer over a multiplicative combination), used by subclasses so
+     * that constraints over nearby meetings and dates do not collide.
+     * @param a First component
+     * @param b Second component
+     * @param c Third component
+     * @return The mixed hash.
+     */
+    protected static int hash (int a, int b, int c) {
+        int h = (a * 0x9E3779B1 + b) * 0x85EBCA77 + c;
+        h ^= h >>> 16;
+        h *= 0x85EBCA6B;
+        h ^= h >>> 13;
+        h *= 0xC2B2AE35;
+        return h ^ (h >>> 16);
+    }
     
 }
@@ -0,0 +1,104 @@
+package main.csp;
+
+/**
+ * The comparators that may relate a meeting's date to another meeting's or
+ * to a fixed date, compared by epoch day so that the solver's inner loops
+ * never dispatch on the operator's String or touch a LocalDate.
+ */
+public enum DateOp {
+
+    EQ("==", 2), NE("!=", 5), LT("<", 1), LE("<=", 3), GT(">", 4), GE(">=", 6);
+
+    // Bits of MASK, one for each of the three possible orderings of two days
+    public static final int BEFORE = 1, SAME = 2, AFTER = 4, ANY = 7;
+
+    public final String SYMBOL;
+
+    // The orderings of leftDay relative to rightDay under which this op holds
+    public final int MASK;
+
+    DateOp (String symbol, int mask) {
+        this.SYMBOL = symbol;
+        this.MASK = mask;
+    }
+
+    /**
+     * Returns the DateOp written as the given symbol.
+     * @param symbol One of "==", "!=", "<", "<=", ">", ">="
+     * @return The corresponding DateOp.
+     */
+    public static DateOp of (String symbol) {
+        for (DateOp op : values()) {
+            if (op.SYMBOL.equals(symbol)) {
+                return op;
+            }
+        }
+        throw new IllegalArgumentException("Invalid constraint operator");
+    }
+
+    /**
+     * Returns the DateOp that holds under exactly the orderings in the given
+     * mask, so that two ops on the same pair of meetings combine into one as
+     * DateOp.ofMask(a.MASK & b.MASK), e.g. < and != into <.
+     * @param mask A combination of BEFORE, SAME and AFTER
+     * @return The corresponding DateOp, or null for 0 (unsatisfiable) and ANY
+     *         (always satisfied), which no single op expresses.
+     */
+    public static DateOp ofMask (int mask) {
+        for (DateOp op : values()) {
+            if (op.MASK == mask) {
+                return op;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Swaps the BEFORE and AFTER bits of a mask, the mask counterpart of
+     * symmetric().
+     * @param mask A combination of BEFORE, SAME and AFTER
+     * @return The mask holding when the two days are swapped.
+     */
+    public static int symmetricMask (int mask) {
+        return ((mask & BEFORE) << 2) | (mask & SAME) | ((mask & AFTER) >> 2);
+    }
+
+    /**
+     * Returns whether or not leftDay op rightDay holds.
+     * @param leftDay The epoch day of the LValue
+     * @param rightDay The epoch day of the RValue
+     * @return Whether or not the comparison holds.
+     */
+    public boolean test (int leftDay, int rightDay) {
+        switch (this) {
+        case EQ: return leftDay == rightDay;
+        case NE: return leftDay != rightDay;
+        case LT: return leftDay < rightDay;
+        case LE: return leftDay <= rightDay;
+        case GT: return leftDay > rightDay;
+        case GE: return leftDay >= rightDay;
+        }
+        return false;
+    }
+
+    /**
+     * Returns the operator that holds when the LValue and RValue are swapped,
+     * such that a op b if and only if b op.symmetric() a.
+     * @return The symmetrical operator.
+     */
+    public DateOp symmetric () {
+        switch (this) {
+        case LT: return GT;
+        case GT: return LT;
+        case LE: return GE;
+        case GE: return LE;
+        default: return this;
+        }
+    }
+
+    @Override
+    public String toString () {
+        return this.SYMBOL;
+    }
+
+}
@@ -0,0 +1,112 @@
+package main.csp;
+
+/**
+ * A mutable set of dates, each represented by its int epoch day, as stored
+ * by a MeetingDomain. Implementations trade off membership and iteration
+ * speed (BitDaySet) against construction and truncation cost over long
+ * date ranges (IntervalDaySet).
+ *
+ * Every query that may come up empty reports so with MeetingDomain.NONE.
+ */
+public interface DaySet {
+
+    /**
+     * @return The number of days in this set.
+     */
+    int size ();
+
+    /**
+     * @param day An epoch day.
+     * @return Whether or not the given day is a member of this set.
+     */
+    boolean contains (int day);
+
+    /**
+     * Removes the given day from this set, if present.
+     * @param day An epoch day.
+     * @return true if the day was a member and has been removed.
+     */
+    boolean remove (int day);
+
+    /**
+     * Removes every member strictly before the given day.
+     * @param day The earliest epoch day that may remain in this set.
+     * @return true if any member has been removed.
+     */
+    boolean removeBefore (int day);
+
+    /**
+     * Removes every member strictly after the given day.
+     * @param day The latest epoch day that may remain in this set.
+     * @return true if any member has been removed.
+     */
+    boolean removeAfter (int day);
+
+    /**
+     * @param day The epoch day at which to begin searching.
+     * @return The smallest member greater than or equal to day, or NONE.
+     */
+    int next (int day);
+
+    /**
+     * @param day The epoch day at which to begin searching.
+     * @return The largest member less than or equal to day, or NONE.
+     */
+    int prev (int day);
+
+    /**
+     * @param from The first epoch day to count.
+     * @param to The last epoch day to count.
+     * @return The number of members between from and to (inclusive).
+     */
+    int count (int from, int to);
+
+    /**
+     * Re-adds a day previously removed from this set with remove. Only called
+     * by a Trail undoing removals in reverse order, so the day is never a
+     * member and always lies within the current [lo, hi] window.
+     * @param day An epoch day.
+     */
+    void restore (int day);
+
+    /**
+     * @return The lower end of the window of days this set may contain,
+     *         which only removeBefore moves.
+     */
+    int windowStart ();
+
+    /**
+     * @return The upper end of the window of days this set may contain,
+     *         which only removeAfter moves.
+     */
+    int windowEnd ();
+
+    /**
+     * Resets the window of days this set may contain, undoing truncations.
+     * Only called by a Trail with values previously read from this set.
+     * @param lo The window start to restore.
+     * @param hi The window end to restore.
+     * @param size The size this set had with that window.
+     */
+    void restoreWindow (int lo, int hi, int size);
+
+    /**
+     * @return A new, independent DaySet with the same members as this one.
+     */
+    DaySet copy ();
+
+    /**
+     * @return The smallest member of this set, or NONE if empty.
+     */
+    default int first () {
+        return this.next(Integer.MIN_VALUE);
+    }
+
+    /**
+     * @return The largest member of this set, or NONE if empty.
+     */
+    default int last () {
+        return this.prev(Integer.MAX_VALUE);
+    }
+
+}
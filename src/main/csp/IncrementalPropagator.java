@@ -0,0 +1,113 @@
+package main.csp;
+
+import java.util.*;
+
+/**
+ * Keeps a problem arc consistent as constraints are added to it one at a
+ * time, as in an interactive scheduler. The domains, the ConstraintIndex
+ * and the ArcQueue stay alive between additions, and adding a constraint
+ * only queues the arcs it may affect: the new constraint's own two arcs,
+ * or the arcs into a meeting a unary constraint has pruned. Each addition
+ * then costs O(degree) plus the propagation it triggers, rather than a
+ * full AC-3 run over every constraint.
+ *
+ * Propagation is specialized AC-3, as with Propagation.AC3.
+ */
+public class IncrementalPropagator {
+
+    private final List<MeetingDomain> varDomains;
+    private final ConstraintIndex index;
+    private final ArcQueue queue;
+    private final Set<DateConstraint> constraints = new HashSet<>();
+    private boolean consistent;
+
+    /**
+     * Makes the given domains node and arc consistent with the given
+     * constraints, and keeps them so as more are added.
+     * @param varDomains  List of MeetingDomains in which index i corresponds to D_i
+     * @param constraints Date constraints on the meeting times, unary and binary
+     */
+    public IncrementalPropagator (List<MeetingDomain> varDomains, Set<DateConstraint> constraints) {
+        this.varDomains = varDomains;
+        this.index = new ConstraintIndex(varDomains.size(), constraints);
+        this.queue = new ArcQueue(this.index.arcs());
+        this.constraints.addAll(constraints);
+        CSPSolver.nodeConsistency(varDomains, constraints);
+        this.consistent = CSPSolver.arcConsistency(varDomains, this.index);
+    }
+
+    /**
+     * Adds the given constraint, and propagates only what it changes. A
+     * constraint already added, in either direction, changes nothing.
+     * @param c A date constraint on meetings of this problem
+     * @return false if some domain is or has been emptied, in which case no
+     *         solution exists, now or after any further addition.
+     */
+    public boolean addConstraint (DateConstraint c) {
+        if (!this.constraints.add(c)) {
+            return this.consistent;
+        }
+        this.index.add(c);
+        if (c.arity() == 1) {
+            UnaryRestriction restriction = new UnaryRestriction();
+            restriction.add((UnaryDateConstraint) c);
+            MeetingDomain domain = this.varDomains.get(c.L_VAL);
+            if (!restriction.applyTo(domain)) {
+                return this.consistent;
+            }
+            this.consistent &= !domain.isEmpty();
+            for (int arc : this.index.arcsInto(c.L_VAL)) {
+                this.queue.add(arc);
+            }
+        } else {
+            int arc = this.index.arcs() - 2;
+            this.queue.grow(this.index.arcs());
+            this.queue.add(arc);
+            this.queue.add(arc + 1);
+        }
+        this.consistent &= CSPSolver.propagate(this.varDomains, this.index, Propagation.AC3, this.queue);
+        return this.consistent;
+    }
+
+    /**
+     * Adds each of the given constraints in turn.
+     * @param constraints Date constraints on meetings of this problem
+     * @return false if some domain is or has been emptied.
+     */
+    public boolean addConstraints (Collection<? extends DateConstraint> constraints) {
+        for (DateConstraint c : constraints) {
+            this.addConstraint(c);
+        }
+        return this.consistent;
+    }
+
+    /**
+     * @return false if some domain is or has been emptied.
+     */
+    public boolean isConsistent () {
+        return this.consistent;
+    }
+
+    /**
+     * @return An unmodifiable, live view of the constraints added so far,
+     *         including the initial ones.
+     */
+    public Set<DateConstraint> constraints () {
+        return Collections.unmodifiableSet(this.constraints);
+    }
+
+    /**
+     * @return The propagated domains, indexed by meeting.
+     */
+    public List<MeetingDomain> domains () {
+        return this.varDomains;
+    }
+
+    /**
+     * @return The index of every constraint added so far.
+     */
+    public ConstraintIndex index () {
+        return this.index;
+    }
+
+}
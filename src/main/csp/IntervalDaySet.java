@@ -0,0 +1,249 @@
+package main.csp;
+
+import java.util.Arrays;
+
+/**
+ * Set of dates, each represented by its epoch day, stored as a sorted list
+ * of disjoint [start, end] intervals. Building the set over a range costs
+ * O(1) however many days it spans, which suits multi-year planning
+ * windows in which most constraints only carve out a few bounds and holes.
+ *
+ * Like BitDaySet, truncations only move the [lo, hi] window of days that
+ * are considered members, so they cost an O(log k) search over the k
+ * intervals plus the intervals that fall out of the window. Removing a
+ * single day splits the interval that contains it.
+ */
+public class IntervalDaySet implements DaySet {
+
+    private int[] starts, ends;
+    private int count, lo, hi, size;
+
+    /**
+     * Constructs a new IntervalDaySet containing every day between first and
+     * last (inclusive). If last precedes first, the set is empty.
+     * @param first The epoch day of the first member.
+     * @param last The epoch day of the last member.
+     */
+    public IntervalDaySet (int first, int last) {
+        this.starts = new int[] { first };
+        this.ends = new int[] { last };
+        this.count = (last >= first) ? 1 : 0;
+        this.lo = first;
+        this.hi = Math.max(last, first - 1);
+        this.size = this.count * (last - first + 1);
+    }
+
+    /**
+     * Copy-constructor for an IntervalDaySet that initializes it with the
+     * same members as the other.
+     * @param other Other IntervalDaySet from which to make a copy.
+     */
+    public IntervalDaySet (IntervalDaySet other) {
+        this.starts = Arrays.copyOf(other.starts, Math.max(1, other.count));
+        this.ends = Arrays.copyOf(other.ends, Math.max(1, other.count));
+        this.count = other.count;
+        this.lo = other.lo;
+        this.hi = other.hi;
+        this.size = other.size;
+    }
+
+    @Override
+    public int size () {
+        return this.size;
+    }
+
+    @Override
+    public boolean contains (int day) {
+        if (day < this.lo || day > this.hi) {
+            return false;
+        }
+        int i = this.find(day);
+        return i >= 0 && this.ends[i] >= day;
+    }
+
+    @Override
+    public boolean remove (int day) {
+        if (!this.contains(day)) {
+            return false;
+        }
+        int i = this.find(day);
+        if (this.starts[i] == this.ends[i]) {
+            System.arraycopy(this.starts, i + 1, this.starts, i, this.count - i - 1);
+            System.arraycopy(this.ends, i + 1, this.ends, i, this.count - i - 1);
+            this.count--;
+        } else if (day == this.starts[i]) {
+            this.starts[i]++;
+        } else if (day == this.ends[i]) {
+            this.ends[i]--;
+        } else {
+            this.insert(i + 1, day + 1, this.ends[i]);
+            this.ends[i] = day - 1;
+        }
+        this.size--;
+        return true;
+    }
+
+    @Override
+    public void restore (int day) {
+        int i = this.find(day);
+        boolean joinsLeft = i >= 0 && this.ends[i] == day - 1,
+                joinsRight = i + 1 < this.count && this.starts[i + 1] == day + 1;
+        if (joinsLeft && joinsRight) {
+            this.ends[i] = this.ends[i + 1];
+            System.arraycopy(this.starts, i + 2, this.starts, i + 1, this.count - i - 2);
+            System.arraycopy(this.ends, i + 2, this.ends, i + 1, this.count - i - 2);
+            this.count--;
+        } else if (joinsLeft) {
+            this.ends[i] = day;
+        } else if (joinsRight) {
+            this.starts[i + 1] = day;
+        } else {
+            this.insert(i + 1, day, day);
+        }
+        this.size++;
+    }
+
+    @Override
+    public int windowStart () {
+        return this.lo;
+    }
+
+    @Override
+    public int windowEnd () {
+        return this.hi;
+    }
+
+    @Override
+    public void restoreWindow (int lo, int hi, int size) {
+        this.lo = lo;
+        this.hi = hi;
+        this.size = size;
+    }
+
+    @Override
+    public boolean removeBefore (int day) {
+        if (day <= this.lo) {
+            return false;
+        }
+        int cutTo = Math.min(day - 1, this.hi),
+            removed = (cutTo >= this.lo) ? this.countStored(this.lo, cutTo) : 0;
+        this.lo = day;
+        this.size -= removed;
+        return removed > 0;
+    }
+
+    @Override
+    public boolean removeAfter (int day) {
+        if (day >= this.hi) {
+            return false;
+        }
+        int cutFrom = Math.max(day + 1, this.lo),
+            removed = (cutFrom <= this.hi) ? this.countStored(cutFrom, this.hi) : 0;
+        this.hi = day;
+        this.size -= removed;
+        return removed > 0;
+    }
+
+    @Override
+    public int next (int day) {
+        int from = Math.max(day, this.lo);
+        if (from > this.hi) {
+            return MeetingDomain.NONE;
+        }
+        int i = this.find(from);
+        if (i >= 0 && this.ends[i] >= from) {
+            return from;
+        }
+        if (++i >= this.count || this.starts[i] > this.hi) {
+            return MeetingDomain.NONE;
+        }
+        return this.starts[i];
+    }
+
+    @Override
+    public int prev (int day) {
+        int to = Math.min(day, this.hi);
+        if (to < this.lo) {
+            return MeetingDomain.NONE;
+        }
+        int i = this.find(to);
+        if (i < 0) {
+            return MeetingDomain.NONE;
+        }
+        int found = Math.min(this.ends[i], to);
+        return (found >= this.lo) ? found : MeetingDomain.NONE;
+    }
+
+    @Override
+    public IntervalDaySet copy () {
+        return new IntervalDaySet(this);
+    }
+
+    /**
+     * @return The number of disjoint intervals currently stored, including
+     *         any that lie outside of the [lo, hi] window.
+     */
+    public int intervals () {
+        return this.count;
+    }
+
+    /**
+     * Binary searches for the last interval starting on or before day.
+     * @param day An epoch day.
+     * @return The index of that interval, or -1 if every interval starts after day.
+     */
+    private int find (int day) {
+        int low = 0, high = this.count - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            if (this.starts[mid] <= day) {
+                low = mid + 1;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return high;
+    }
+
+    @Override
+    public int count (int from, int to) {
+        from = Math.max(from, this.lo);
+        to = Math.min(to, this.hi);
+        return (from <= to) ? this.countStored(from, to) : 0;
+    }
+
+    /**
+     * Counts the members between from and to (inclusive), ignoring the
+     * [lo, hi] window.
+     * @param from The first epoch day to count.
+     * @param to The last epoch day to count.
+     * @return The number of stored days in that range.
+     */
+    private int countStored (int from, int to) {
+        int i = Math.max(0, this.find(from)), total = 0;
+        for (; i < this.count && this.starts[i] <= to; i++) {
+            int overlap = Math.min(this.ends[i], to) - Math.max(this.starts[i], from) + 1;
+            total += Math.max(0, overlap);
+        }
+        return total;
+    }
+
+    /**
+     * Inserts the interval [start, end] at index i, shifting later intervals right.
+     * @param i The index at which to insert.
+     * @param start The first epoch day of the new interval.
+     * @param end The last epoch day of the new interval.
+     */
+    private void insert (int i, int start, int end) {
+        if (this.count == this.starts.length) {
+            this.starts = Arrays.copyOf(this.starts, this.count * 2);
+            this.ends = Arrays.copyOf(this.ends, this.count * 2);
+        }
+        System.arraycopy(this.starts, i, this.starts, i + 1, this.count - i);
+        System.arraycopy(this.ends, i, this.ends, i + 1, this.count - i);
+        this.starts[i] = start;
+        this.ends[i] = end;
+        this.count++;
+    }
+
+}
@@ -0,0 +1,31 @@
+package main.csp;
+
+/**
+ * How far BacktrackingSearch looks ahead of each assignment, pruning the
+ * domains of the meetings not yet assigned and undoing that pruning
+ * through a Trail on backtrack.
+ */
+public enum Lookahead {
+
+    /**
+     * No pruning: each day is only checked against the meetings already
+     * assigned, so a dead end shows once the search reaches its meeting.
+     */
+    NONE,
+
+    /**
+     * Forward checking: every day incompatible with the assignment is
+     * removed from the domains of the assigned meeting's unassigned
+     * neighbours, and the assignment fails as soon as one is wiped out.
+     */
+    FORWARD_CHECKING,
+
+    /**
+     * Maintaining arc consistency: the assigned meeting's domain is narrowed
+     * to its day, and AC-3 propagates that through the whole constraint
+     * graph, not just to the meeting's neighbours. Costs more per node than
+     * FORWARD_CHECKING, but on tightly coupled instances explores far fewer.
+     */
+    MAC
+
+}
@@ -6,11 +6,31 @@ import java.util.*;
 /**
  * Helper class used to manage Meeting Variable domains in both the
  * Backtracking scheduler and the Filtering methods of the CSP solver.
+ *
+ * Dates are stored by their epoch day in a DaySet (a BitDaySet unless
+ * created through ofIntervals), and the solver's inner loops work on those
+ * int days directly; domainValues is a live Set<LocalDate> view over the
+ * same storage.
+ *
+ * A domain's DaySet may be shared with other domains (see viewOf and the
+ * copy-constructor), in which case it is treated as immutable and only
+ * copied into storage of this domain's own the first time it is pruned.
  */
 public class MeetingDomain {
-    
-    public Set<LocalDate> domainValues;
-    
+
+    /**
+     * Sentinel returned by first / last / next / prev when there is no such date.
+     */
+    public static final int NONE = Integer.MIN_VALUE;
+
+    public final Set<LocalDate> domainValues;
+
+    private DaySet days;
+    private boolean shared;
+
+    // Undo log recording this domain's changes, if any
+    Trail trail;
+
     /**
      * Creates a new MeetingDomain with all dates between the given rangeStart
      * and rangeEnd (inclusive).
@@ -18,24 +38,289 @@ public class MeetingDomain {
      * @param rangeEnd The end date of the domain.
      */
     public MeetingDomain (LocalDate rangeStart, LocalDate rangeEnd) {
-        this.domainValues = new HashSet<>();
-        for (LocalDate date = rangeStart; date.isBefore(rangeEnd) || date.isEqual(rangeEnd); date = date.plusDays(1)) {
-            this.domainValues.add(date);
-        }
+        this(new BitDaySet(toEpochDay(rangeStart), toEpochDay(rangeEnd)), false);
     }
-    
+
     /**
      * Copy-constructor for a MeetingDomain that initializes it with the
-     * same values as the other.
+     * same values as the other. The two share storage until either is
+     * pruned, so copying is O(1), except from domains of an
+     * OffHeapDomainStore, which are always copied onto the heap.
      * @param other Other MeetingDomain from which to make a copy.
      */
     public MeetingDomain (MeetingDomain other) {
-        this.domainValues = new HashSet<>(other.domainValues);
+        if (other.isOffHeap()) {
+            this.days = other.days.copy();
+        } else {
+            this.days = other.days;
+            this.shared = other.shared = true;
+        }
+        this.domainValues = new DateView();
+    }
+
+    /**
+     * Creates a new MeetingDomain over the given DaySet.
+     * @param days The epoch days initially in the domain.
+     * @param shared Whether days may be read by others, and so must be
+     *        copied before this domain changes it.
+     */
+    MeetingDomain (DaySet days, boolean shared) {
+        this.days = days;
+        this.shared = shared;
+        this.domainValues = new DateView();
+    }
+
+    /**
+     * Creates a lightweight MeetingDomain whose dates are read from the
+     * given base set until the domain is first pruned, at which point it
+     * copies the base into storage of its own. Many domains may view the
+     * same base, which must not be modified afterwards.
+     * @param base The epoch days initially in the domain.
+     * @return The new MeetingDomain viewing base.
+     */
+    public static MeetingDomain viewOf (DaySet base) {
+        return new MeetingDomain(base, true);
+    }
+
+    /**
+     * Creates a new MeetingDomain with all dates between the given rangeStart
+     * and rangeEnd (inclusive), stored as a list of disjoint date intervals
+     * rather than one bit per day. Preferable for ranges of several years.
+     * @param rangeStart The beginning date of the domain.
+     * @param rangeEnd The end date of the domain.
+     * @return The new, interval-backed MeetingDomain.
+     */
+    public static MeetingDomain ofIntervals (LocalDate rangeStart, LocalDate rangeEnd) {
+        return new MeetingDomain(new IntervalDaySet(toEpochDay(rangeStart), toEpochDay(rangeEnd)), false);
+    }
+
+    /**
+     * @return The number of dates remaining in this domain.
+     */
+    public int size () {
+        return this.days.size();
+    }
+
+    /**
+     * @return Whether or not this domain has been wiped out.
+     */
+    public boolean isEmpty () {
+        return this.days.size() == 0;
+    }
+
+    /**
+     * @param day An epoch day.
+     * @return Whether or not the date with the given epoch day is in this domain.
+     */
+    public boolean contains (int day) {
+        return this.days.contains(day);
+    }
+
+    /**
+     * Removes the date with the given epoch day from this domain, if present.
+     * @param day An epoch day.
+     * @return true if the date was in this domain and has been removed.
+     */
+    public boolean remove (int day) {
+        if (!this.days.contains(day)) {
+            return false;
+        }
+        this.own().remove(day);
+        if (this.trail != null) {
+            this.trail.recordRemoval(this, day);
+        }
+        return true;
+    }
+
+    /**
+     * Removes every date strictly before the given one from this domain.
+     * @param day The earliest epoch day that may remain.
+     * @return true if any date has been removed.
+     */
+    public boolean removeBefore (int day) {
+        if (day <= this.days.windowStart()) {
+            return false;
+        }
+        int lo = this.days.windowStart(), hi = this.days.windowEnd(), size = this.days.size();
+        boolean removed = this.own().removeBefore(day);
+        if (this.trail != null && (lo != this.days.windowStart() || hi != this.days.windowEnd())) {
+            this.trail.recordWindow(this, lo, hi, size);
+        }
+        return removed;
+    }
+
+    /**
+     * Removes every date strictly after the given one from this domain.
+     * @param day The latest epoch day that may remain.
+     * @return true if any date has been removed.
+     */
+    public boolean removeAfter (int day) {
+        if (day >= this.days.windowEnd()) {
+            return false;
+        }
+        int lo = this.days.windowStart(), hi = this.days.windowEnd(), size = this.days.size();
+        boolean removed = this.own().removeAfter(day);
+        if (this.trail != null && (lo != this.days.windowStart() || hi != this.days.windowEnd())) {
+            this.trail.recordWindow(this, lo, hi, size);
+        }
+        return removed;
+    }
+
+    /**
+     * @return The epoch day of the earliest date in this domain, or NONE if empty.
+     */
+    public int first () {
+        return this.days.first();
+    }
+
+    /**
+     * @return The epoch day of the latest date in this domain, or NONE if empty.
+     */
+    public int last () {
+        return this.days.last();
     }
-    
+
+    /**
+     * Returns the earliest date in this domain on or after the given one, such
+     * that the domain may be walked in ascending order with:
+     * for (int d = dom.first(); d != NONE; d = dom.next(d + 1)) { ... }
+     * @param day The epoch day at which to begin searching.
+     * @return The epoch day of the next date in this domain, or NONE if there is none.
+     */
+    public int next (int day) {
+        return this.days.next(day);
+    }
+
+    /**
+     * @param day The epoch day at which to begin searching.
+     * @return The epoch day of the latest date in this domain on or before the
+     *         given one, or NONE if there is none.
+     */
+    public int prev (int day) {
+        return this.days.prev(day);
+    }
+
+    /**
+     * Counts the dates of this domain within a range without walking them,
+     * in O(range / 64) for bitsets and O(log intervals + intervals in range)
+     * for interval lists.
+     * @param from The epoch day of the first date to count.
+     * @param to The epoch day of the last date to count.
+     * @return The number of dates in this domain from from to to (inclusive).
+     */
+    public int count (int from, int to) {
+        return this.days.count(from, to);
+    }
+
+    /**
+     * @return Whether or not this domain still reads from storage shared with
+     *         other domains, having never been pruned since.
+     */
+    public boolean isShared () {
+        return this.shared;
+    }
+
+    /**
+     * @return Whether or not this domain reads and writes a slot of an
+     *         OffHeapDomainStore, and so cannot be attached to a Trail.
+     */
+    boolean isOffHeap () {
+        return this.days instanceof OffHeapDomainStore.Slot;
+    }
+
+    /**
+     * Gives this domain storage of its own, copying the shared base on the
+     * first change made to it.
+     * @return This domain's DaySet, safe to modify.
+     */
+    private DaySet own () {
+        if (this.shared) {
+            this.days = this.days.copy();
+            this.shared = false;
+        }
+        return this.days;
+    }
+
+    /**
+     * Reverts one change recorded by this domain's Trail.
+     * @param kind Trail.REMOVAL or Trail.WINDOW
+     * @param a The removed day, or the window start to restore
+     * @param b The window end to restore
+     * @param c The size to restore
+     */
+    void undo (int kind, int a, int b, int c) {
+        if (kind == Trail.REMOVAL) {
+            this.own().restore(a);
+        } else {
+            this.own().restoreWindow(a, b, c);
+        }
+    }
+
+    /**
+     * Converts the given date to the int epoch day used to index domains.
+     * @param date The date to convert.
+     * @return The number of days between 1970-01-01 and the date.
+     */
+    public static int toEpochDay (LocalDate date) {
+        return Math.toIntExact(date.toEpochDay());
+    }
+
     @Override
     public String toString () {
         return this.domainValues.toString();
     }
 
+    /**
+     * Live LocalDate view over this domain's epoch days, in ascending order.
+     */
+    private class DateView extends AbstractSet<LocalDate> {
+
+        @Override
+        public int size () {
+            return days.size();
+        }
+
+        @Override
+        public boolean contains (Object o) {
+            if (!(o instanceof LocalDate)) { return false; }
+            long day = ((LocalDate) o).toEpochDay();
+            return day == (int) day && days.contains((int) day);
+        }
+
+        @Override
+        public boolean remove (Object o) {
+            if (!(o instanceof LocalDate)) { return false; }
+            long day = ((LocalDate) o).toEpochDay();
+            return day == (int) day && MeetingDomain.this.remove((int) day);
+        }
+
+        @Override
+        public Iterator<LocalDate> iterator () {
+            return new Iterator<LocalDate>() {
+                int nextDay = first(), lastDay = NONE;
+
+                @Override
+                public boolean hasNext () {
+                    return this.nextDay != NONE;
+                }
+
+                @Override
+                public LocalDate next () {
+                    if (this.nextDay == NONE) { throw new NoSuchElementException(); }
+                    this.lastDay = this.nextDay;
+                    this.nextDay = days.next(this.lastDay + 1);
+                    return LocalDate.ofEpochDay(this.lastDay);
+                }
+
+                @Override
+                public void remove () {
+                    if (this.lastDay == NONE) { throw new IllegalStateException(); }
+                    MeetingDomain.this.remove(this.lastDay);
+                    this.lastDay = NONE;
+                }
+            };
+        }
+
+    }
+
 }
@@ -0,0 +1,98 @@
+package main.csp;
+
+import java.time.LocalDate;
+import java.util.*;
+
+/**
+ * Pre-pass run in front of the solvers on constraint sets that may come from
+ * several upstream systems, and so contain redundant, duplicate or
+ * contradictory constraints.
+ *
+ * Every meeting's unary constraints (and the date range) are merged into a
+ * single UnaryRestriction, and every binary constraint on the same pair of
+ * meetings, in either direction, is merged into one relation by intersecting
+ * their DateOp masks. Inputs that are unsatisfiable on their face (an empty
+ * restriction or an empty relation) are reported before any domain is built.
+ */
+public class NormalizedConstraints {
+
+    public final boolean UNSATISFIABLE;
+
+    // The equivalent, normalized constraints: at most one binary constraint per
+    // pair, and only the unary constraints the date range does not already imply
+    public final Set<DateConstraint> CONSTRAINTS;
+
+    private NormalizedConstraints (boolean unsatisfiable, Set<DateConstraint> constraints) {
+        this.UNSATISFIABLE = unsatisfiable;
+        this.CONSTRAINTS = constraints;
+    }
+
+    /**
+     * Normalizes the given constraints for a problem with nMeetings meetings
+     * whose dates range from rangeStart to rangeEnd (inclusive).
+     * @param nMeetings The number of meetings, indexed from 0 to n-1
+     * @param rangeStart The start date (inclusive) of every meeting's domain
+     * @param rangeEnd The end date (inclusive) of every meeting's domain
+     * @param constraints Date constraints on the meeting times
+     * @return The normalized constraints, flagged UNSATISFIABLE if they trivially are.
+     */
+    public static NormalizedConstraints of (int nMeetings, LocalDate rangeStart, LocalDate rangeEnd,
+            Set<DateConstraint> constraints) {
+        int first = MeetingDomain.toEpochDay(rangeStart), last = MeetingDomain.toEpochDay(rangeEnd);
+        Map<Integer, UnaryRestriction> restrictions = new HashMap<>();
+        Map<Long, Integer> relations = new HashMap<>();
+        boolean unsatisfiable = first > last && nMeetings > 0;
+
+        for (DateConstraint c : constraints) {
+            if (c.arity() == 1) {
+                restrictions.computeIfAbsent(c.L_VAL, meeting -> new UnaryRestriction())
+                        .add((UnaryDateConstraint) c);
+                continue;
+            }
+            // Orient every pair from its lower meeting index
+            int l = c.L_VAL, r = ((BinaryDateConstraint) c).R_VAL, mask = c.OPERATOR.MASK;
+            if (l > r) {
+                int swap = l; l = r; r = swap;
+                mask = DateOp.symmetricMask(mask);
+            }
+            relations.merge(((long) l << 32) | r, mask, (a, b) -> a & b);
+        }
+
+        Set<DateConstraint> normalized = new HashSet<>();
+        for (Map.Entry<Integer, UnaryRestriction> entry : restrictions.entrySet()) {
+            int meeting = entry.getKey();
+            UnaryRestriction restriction = entry.getValue();
+            restriction.add(DateOp.GE, first);
+            restriction.add(DateOp.LE, last);
+            if (restriction.isEmpty()) {
+                unsatisfiable = true;
+                continue;
+            }
+            int lo = restriction.lo(), hi = restriction.hi();
+            if (lo == hi) {
+                normalized.add(new UnaryDateConstraint(meeting, "==", LocalDate.ofEpochDay(lo)));
+                continue;
+            }
+            if (lo > first) {
+                normalized.add(new UnaryDateConstraint(meeting, ">=", LocalDate.ofEpochDay(lo)));
+            }
+            if (hi < last) {
+                normalized.add(new UnaryDateConstraint(meeting, "<=", LocalDate.ofEpochDay(hi)));
+            }
+            for (int day : restriction.excluded()) {
+                normalized.add(new UnaryDateConstraint(meeting, "!=", LocalDate.ofEpochDay(day)));
+            }
+        }
+        for (Map.Entry<Long, Integer> entry : relations.entrySet()) {
+            DateOp op = DateOp.ofMask(entry.getValue());
+            if (op == null) {
+                unsatisfiable = true;
+                continue;
+            }
+            long pair = entry.getKey();
+            normalized.add(new BinaryDateConstraint((int) (pair >>> 32), op.SYMBOL, (int) pair));
+        }
+        return new NormalizedConstraints(unsatisfiable, normalized);
+    }
+
+}
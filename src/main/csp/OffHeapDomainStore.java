@@ -0,0 +1,546 @@
+package main.csp;
+
+import java.nio.*;
+import java.time.LocalDate;
+import java.util.*;
+
+/**
+ * Optional store for very large instances that keeps every meeting's domain
+ * and every constraint in direct (off-heap) memory, so that the garbage
+ * collector never has to trace them.
+ *
+ * Each domain occupies a fixed-size slot holding its [lo, hi] window, its
+ * size and a bitset over the shared date range, laid out exactly as a
+ * BitDaySet. Constraints are packed as 4 ints each. The store's own
+ * nodeConsistency and arcConsistency filter the slots in place, the latter
+ * over an arc index and worklist compiled off-heap as well, so that they
+ * allocate nothing per meeting, constraint or revision.
+ *
+ * The store also exposes both through the ordinary List<MeetingDomain> /
+ * Set<DateConstraint> interfaces, whose elements are short-lived flyweights
+ * decoded on access, so that the rest of the solver can read and write it,
+ * at the cost of one allocation per access.
+ *
+ * [!] Domains read from the store write straight through to it, so they
+ *     cannot be attached to a Trail; copy them first if changes must be undone.
+ *     BacktrackingSearch does so itself.
+ */
+public class OffHeapDomainStore {
+
+    // Slot layout: lo, hi and size ints padded to 16 bytes, then the bitset words
+    private static final int LO = 0, HI = 4, SIZE = 8, WORDS = 16;
+
+    // Constraint layout: arity, DateOp ordinal, lVal, rVal (meeting index or epoch day)
+    private static final int CONSTRAINT_INTS = 4;
+    private static final DateOp[] OPS = DateOp.values();
+
+    // Arc layout: tail, head, DateOp ordinal reading "tail op head"; arcs 2k
+    // and 2k + 1 come from the k-th binary constraint, as in ConstraintIndex
+    private static final int ARC_INTS = 3;
+
+    public final int N_MEETINGS, ORIGIN;
+
+    private final ByteBuffer domains;
+    private final int nWords, slotBytes;
+    private IntBuffer constraints;
+    private int nConstraints;
+
+    // Compiled by arcConsistency, and again after constraints are added:
+    // the arcs, and for each meeting m the arcs into it, at intoStart[m]
+    // up to intoStart[m + 1]; then the worklist every call reuses, a FIFO
+    // ring of arcs, each queued at most once, with one byte per arc telling
+    // whether it is
+    private IntBuffer arcs, arcsInto, intoStart, ring;
+    private ByteBuffer queued;
+    private int nArcs = -1;
+
+    /**
+     * Allocates a store for nMeetings meetings whose domains each initially
+     * contain all dates between the given rangeStart and rangeEnd (inclusive).
+     * @param nMeetings The number of meetings, indexed from 0 to n-1
+     * @param rangeStart The beginning date of each domain.
+     * @param rangeEnd The end date of each domain.
+     */
+    public OffHeapDomainStore (int nMeetings, LocalDate rangeStart, LocalDate rangeEnd) {
+        int first = MeetingDomain.toEpochDay(rangeStart),
+            span = Math.max(0, MeetingDomain.toEpochDay(rangeEnd) - first + 1);
+        long bytes = (long) nMeetings * (WORDS + 8 * ((span + 63) >>> 6));
+        if (nMeetings < 0 || bytes > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Store would exceed 2GB of domain storage");
+        }
+        this.N_MEETINGS = nMeetings;
+        this.ORIGIN = first;
+        this.nWords = (span + 63) >>> 6;
+        this.slotBytes = WORDS + 8 * this.nWords;
+        this.domains = ByteBuffer.allocateDirect((int) bytes).order(ByteOrder.nativeOrder());
+        this.constraints = ByteBuffer.allocateDirect(64 * CONSTRAINT_INTS * 4).order(ByteOrder.nativeOrder()).asIntBuffer();
+
+        // Every slot starts out holding the full range
+        BitDaySet full = new BitDaySet(first, first + span - 1);
+        for (int m = 0; m < nMeetings; m++) {
+            int slot = m * this.slotBytes;
+            this.domains.putInt(slot + LO, first);
+            this.domains.putInt(slot + HI, first + span - 1);
+            this.domains.putInt(slot + SIZE, span);
+            for (int w = 0; w < this.nWords; w++) {
+                this.domains.putLong(slot + WORDS + 8 * w, full.word(w));
+            }
+        }
+    }
+
+    /**
+     * Allocates a store as above and packs the given constraints into it.
+     * @param nMeetings The number of meetings, indexed from 0 to n-1
+     * @param rangeStart The beginning date of each domain.
+     * @param rangeEnd The end date of each domain.
+     * @param constraints Date constraints on the meeting times
+     * @return The populated store.
+     */
+    public static OffHeapDomainStore of (int nMeetings, LocalDate rangeStart, LocalDate rangeEnd, Set<DateConstraint> constraints) {
+        OffHeapDomainStore store = new OffHeapDomainStore(nMeetings, rangeStart, rangeEnd);
+        for (DateConstraint c : constraints) {
+            store.addConstraint(c);
+        }
+        return store;
+    }
+
+    /**
+     * Packs the given constraint into off-heap memory. Like adding to any
+     * Set, the caller must not add a constraint the store already holds.
+     * @param c The constraint to add.
+     */
+    public void addConstraint (DateConstraint c) {
+        if (c.L_VAL >= this.N_MEETINGS || (c.arity() == 2 && ((BinaryDateConstraint) c).R_VAL >= this.N_MEETINGS)) {
+            throw new IllegalArgumentException("Invalid variable index");
+        }
+        if ((this.nConstraints + 1) * CONSTRAINT_INTS > this.constraints.capacity()) {
+            IntBuffer grown = ByteBuffer.allocateDirect(this.constraints.capacity() * 8).order(ByteOrder.nativeOrder()).asIntBuffer();
+            this.constraints.clear();
+            grown.put(this.constraints);
+            this.constraints = grown;
+        }
+        int i = this.nConstraints++ * CONSTRAINT_INTS;
+        this.nArcs = -1;
+        this.constraints.put(i, c.arity());
+        this.constraints.put(i + 1, c.OPERATOR.ordinal());
+        this.constraints.put(i + 2, c.L_VAL);
+        this.constraints.put(i + 3, (c.arity() == 1)
+                ? ((UnaryDateConstraint) c).R_DAY
+                : ((BinaryDateConstraint) c).R_VAL);
+    }
+
+    /**
+     * Enforces node consistency on the stored domains, applying each stored
+     * unary constraint as a bound truncation or a single removal, in place.
+     * Equivalent to CSPSolver.nodeConsistency (domains(), constraints())
+     * without decoding any constraint.
+     */
+    public void nodeConsistency () {
+        Slot domain = new Slot(0);
+        for (int i = 0; i < this.nConstraints; i++) {
+            int c = i * CONSTRAINT_INTS;
+            if (this.constraints.get(c) != 1) {
+                continue;
+            }
+            int day = this.constraints.get(c + 3);
+            domain.moveTo(this.constraints.get(c + 2));
+            switch (OPS[this.constraints.get(c + 1)]) {
+            case LT: domain.removeAfter(day - 1); break;
+            case LE: domain.removeAfter(day); break;
+            case GT: domain.removeBefore(day + 1); break;
+            case GE: domain.removeBefore(day); break;
+            case EQ: domain.removeBefore(day); domain.removeAfter(day); break;
+            default: domain.remove(day);
+            }
+        }
+    }
+
+    /**
+     * Enforces arc consistency on the stored domains with AC-3, revising
+     * each arc by its operator as CSPSolver's AC3 engine does. The arcs and
+     * the worklist are kept off-heap, allocated once per set of constraints
+     * and reused by every call, and the slots filtered in place, so that
+     * propagation allocates nothing however large the instance.
+     * @return false if some domain is or has been emptied, in which case no
+     *         solution exists. Propagation stops at the first domain emptied.
+     */
+    public boolean arcConsistency () {
+        for (int m = 0; m < this.N_MEETINGS; m++) {
+            if (this.domains.getInt(m * this.slotBytes + SIZE) == 0) {
+                return false;
+            }
+        }
+        if (this.nArcs < 0) {
+            this.compileArcs();
+        }
+        if (this.nArcs == 0) {
+            return true;
+        }
+        // Every arc starts out queued, whatever an earlier call left behind
+        IntBuffer ring = this.ring;
+        ByteBuffer queued = this.queued;
+        for (int arc = 0; arc < this.nArcs; arc++) {
+            ring.put(arc, arc);
+            queued.put(arc, (byte) 1);
+        }
+        Slot tail = new Slot(0), head = new Slot(0);
+        int first = 0, size = this.nArcs;
+        while (size > 0) {
+            int arc = ring.get(first);
+            first = (first + 1 == this.nArcs) ? 0 : first + 1;
+            size--;
+            queued.put(arc, (byte) 0);
+            int a = arc * ARC_INTS, t = this.arcs.get(a);
+            if (!revise(tail.moveTo(t), head.moveTo(this.arcs.get(a + 1)), OPS[this.arcs.get(a + 2)])) {
+                continue;
+            }
+            if (tail.size() == 0) {
+                return false;
+            }
+            // Every day left in tail is supported by head, so the reverse arc
+            // needs no revision
+            for (int i = this.intoStart.get(t), end = this.intoStart.get(t + 1); i < end; i++) {
+                int incoming = this.arcsInto.get(i);
+                if (incoming != (arc ^ 1) && queued.get(incoming) == 0) {
+                    queued.put(incoming, (byte) 1);
+                    int last = first + size;
+                    ring.put((last >= this.nArcs) ? last - this.nArcs : last, incoming);
+                    size++;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Revises tail against head, neither of which is empty, as
+     * CSPSolver.revise does outside of bounds consistency.
+     * @return Whether or not any day has been removed from tail.
+     */
+    private static boolean revise (Slot tail, Slot head, DateOp op) {
+        switch (op) {
+        case LT: return tail.removeAfter(head.last() - 1);
+        case LE: return tail.removeAfter(head.last());
+        case GT: return tail.removeBefore(head.first() + 1);
+        case GE: return tail.removeBefore(head.first());
+        case NE:
+            int only = head.first();
+            return head.last() == only && tail.remove(only);
+        default:
+            boolean removed = false;
+            for (int day = tail.first(); day != MeetingDomain.NONE; day = tail.next(day + 1)) {
+                if (!head.contains(day)) {
+                    tail.remove(day);
+                    removed = true;
+                }
+            }
+            return removed;
+        }
+    }
+
+    /**
+     * Compiles the stored binary constraints into arcs and per-meeting lists
+     * of the arcs into each meeting, all off-heap.
+     */
+    private void compileArcs () {
+        int nBinary = 0;
+        for (int i = 0; i < this.nConstraints; i++) {
+            nBinary += (this.constraints.get(i * CONSTRAINT_INTS) == 2) ? 1 : 0;
+        }
+        this.nArcs = 2 * nBinary;
+        this.arcs = ByteBuffer.allocateDirect(4 * ARC_INTS * Math.max(1, this.nArcs)).order(ByteOrder.nativeOrder()).asIntBuffer();
+        this.arcsInto = ByteBuffer.allocateDirect(4 * Math.max(1, this.nArcs)).order(ByteOrder.nativeOrder()).asIntBuffer();
+        this.intoStart = ByteBuffer.allocateDirect(4 * (this.N_MEETINGS + 1)).order(ByteOrder.nativeOrder()).asIntBuffer();
+        this.ring = ByteBuffer.allocateDirect(4 * Math.max(1, this.nArcs)).order(ByteOrder.nativeOrder()).asIntBuffer();
+        this.queued = ByteBuffer.allocateDirect(Math.max(1, this.nArcs));
+        int arc = 0;
+        for (int i = 0; i < this.nConstraints; i++) {
+            int c = i * CONSTRAINT_INTS;
+            if (this.constraints.get(c) != 2) {
+                continue;
+            }
+            DateOp op = OPS[this.constraints.get(c + 1)];
+            int l = this.constraints.get(c + 2), r = this.constraints.get(c + 3);
+            this.putArc(arc++, l, r, op);
+            this.putArc(arc++, r, l, op.symmetric());
+        }
+        // Counting sort of the arcs by head: once the counts are summed up,
+        // intoStart[m] is where the arcs into m end, and filling backwards
+        // leaves it where they start
+        for (int m = 1; m < this.N_MEETINGS; m++) {
+            this.intoStart.put(m, this.intoStart.get(m) + this.intoStart.get(m - 1));
+        }
+        this.intoStart.put(this.N_MEETINGS, this.nArcs);
+        for (arc = 0; arc < this.nArcs; arc++) {
+            int head = this.arcs.get(arc * ARC_INTS + 1), at = this.intoStart.get(head) - 1;
+            this.intoStart.put(head, at);
+            this.arcsInto.put(at, arc);
+        }
+    }
+
+    private void putArc (int arc, int tail, int head, DateOp op) {
+        int a = arc * ARC_INTS;
+        this.arcs.put(a, tail);
+        this.arcs.put(a + 1, head);
+        this.arcs.put(a + 2, op.ordinal());
+        this.intoStart.put(head, this.intoStart.get(head) + 1);
+    }
+
+    /**
+     * @return A List view of the stored domains, in which index i corresponds
+     *         to D_i; each get returns a fresh flyweight over that slot.
+     */
+    public List<MeetingDomain> domains () {
+        return new AbstractList<MeetingDomain>() {
+            @Override
+            public MeetingDomain get (int i) {
+                return domain(i);
+            }
+
+            @Override
+            public int size () {
+                return N_MEETINGS;
+            }
+        };
+    }
+
+    /**
+     * @param meeting A meeting index.
+     * @return A MeetingDomain reading and writing that meeting's slot directly.
+     */
+    public MeetingDomain domain (int meeting) {
+        if (meeting < 0 || meeting >= this.N_MEETINGS) {
+            throw new IndexOutOfBoundsException("Invalid variable index");
+        }
+        return new MeetingDomain(new Slot(meeting * this.slotBytes), false);
+    }
+
+    /**
+     * @return A Set view of the stored constraints, each decoded on access.
+     */
+    public Set<DateConstraint> constraints () {
+        return new AbstractSet<DateConstraint>() {
+            @Override
+            public Iterator<DateConstraint> iterator () {
+                return new Iterator<DateConstraint>() {
+                    int next = 0;
+
+                    @Override
+                    public boolean hasNext () {
+                        return this.next < nConstraints;
+                    }
+
+                    @Override
+                    public DateConstraint next () {
+                        if (this.next >= nConstraints) { throw new NoSuchElementException(); }
+                        return constraint(this.next++);
+                    }
+                };
+            }
+
+            @Override
+            public int size () {
+                return nConstraints;
+            }
+        };
+    }
+
+    /**
+     * Decodes the i-th stored constraint.
+     * @param i The index of the constraint, in insertion order.
+     * @return A new DateConstraint equal to the one added.
+     */
+    private DateConstraint constraint (int i) {
+        int c = i * CONSTRAINT_INTS;
+        String op = OPS[this.constraints.get(c + 1)].SYMBOL;
+        int lVal = this.constraints.get(c + 2), rVal = this.constraints.get(c + 3);
+        return (this.constraints.get(c) == 1)
+                ? new UnaryDateConstraint(lVal, op, LocalDate.ofEpochDay(rVal))
+                : new BinaryDateConstraint(lVal, op, rVal);
+    }
+
+    /**
+     * DaySet over one domain slot of the store, mirroring BitDaySet with its
+     * fields and words read from and written to the direct buffer.
+     */
+    class Slot implements DaySet {
+
+        // Only moved by the store's own filtering, never once handed out
+        private int slot;
+
+        Slot (int slot) {
+            this.slot = slot;
+        }
+
+        private Slot moveTo (int meeting) {
+            this.slot = meeting * slotBytes;
+            return this;
+        }
+
+        private int lo () {
+            return domains.getInt(this.slot + LO);
+        }
+
+        private int hi () {
+            return domains.getInt(this.slot + HI);
+        }
+
+        private long word (int w) {
+            return domains.getLong(this.slot + WORDS + 8 * w);
+        }
+
+        private void setWord (int w, long word) {
+            domains.putLong(this.slot + WORDS + 8 * w, word);
+        }
+
+        private void addSize (int delta) {
+            domains.putInt(this.slot + SIZE, this.size() + delta);
+        }
+
+        @Override
+        public int size () {
+            return domains.getInt(this.slot + SIZE);
+        }
+
+        @Override
+        public boolean contains (int day) {
+            if (day < this.lo() || day > this.hi()) {
+                return false;
+            }
+            int i = day - ORIGIN;
+            return (this.word(i >>> 6) & (1L << i)) != 0;
+        }
+
+        @Override
+        public boolean remove (int day) {
+            if (!this.contains(day)) {
+                return false;
+            }
+            int i = day - ORIGIN;
+            this.setWord(i >>> 6, this.word(i >>> 6) & ~(1L << i));
+            this.addSize(-1);
+            return true;
+        }
+
+        @Override
+        public void restore (int day) {
+            int i = day - ORIGIN;
+            this.setWord(i >>> 6, this.word(i >>> 6) | (1L << i));
+            this.addSize(1);
+        }
+
+        @Override
+        public int windowStart () {
+            return this.lo();
+        }
+
+        @Override
+        public int windowEnd () {
+            return this.hi();
+        }
+
+        @Override
+        public void restoreWindow (int lo, int hi, int size) {
+            domains.putInt(this.slot + LO, lo);
+            domains.putInt(this.slot + HI, hi);
+            domains.putInt(this.slot + SIZE, size);
+        }
+
+        @Override
+        public boolean removeBefore (int day) {
+            int lo = this.lo(), hi = this.hi();
+            if (day <= lo) {
+                return false;
+            }
+            int cutTo = Math.min(day - 1, hi),
+                removed = (cutTo >= lo) ? this.countBits(lo, cutTo) : 0;
+            this.restoreWindow(day, hi, this.size() - removed);
+            return removed > 0;
+        }
+
+        @Override
+        public boolean removeAfter (int day) {
+            int lo = this.lo(), hi = this.hi();
+            if (day >= hi) {
+                return false;
+            }
+            int cutFrom = Math.max(day + 1, lo),
+                removed = (cutFrom <= hi) ? this.countBits(cutFrom, hi) : 0;
+            this.restoreWindow(lo, day, this.size() - removed);
+            return removed > 0;
+        }
+
+        @Override
+        public int next (int day) {
+            int from = Math.max(day, this.lo()), hi = this.hi();
+            if (from > hi) {
+                return MeetingDomain.NONE;
+            }
+            int i = from - ORIGIN, w = i >>> 6;
+            long word = this.word(w) & (-1L << i);
+            while (word == 0) {
+                if (++w == nWords) {
+                    return MeetingDomain.NONE;
+                }
+                word = this.word(w);
+            }
+            int found = ORIGIN + (w << 6) + Long.numberOfTrailingZeros(word);
+            return (found <= hi) ? found : MeetingDomain.NONE;
+        }
+
+        @Override
+        public int prev (int day) {
+            int to = Math.min(day, this.hi()), lo = this.lo();
+            if (to < lo) {
+                return MeetingDomain.NONE;
+            }
+            int i = to - ORIGIN, w = i >>> 6;
+            long word = this.word(w) & (-1L >>> (63 - (i & 63)));
+            while (word == 0) {
+                if (--w < 0) {
+                    return MeetingDomain.NONE;
+                }
+                word = this.word(w);
+            }
+            int found = ORIGIN + (w << 6) + 63 - Long.numberOfLeadingZeros(word);
+            return (found >= lo) ? found : MeetingDomain.NONE;
+        }
+
+        /**
+         * Copies this slot onto the heap, since a slot is written in place by
+         * every flyweight over it and so can never be shared.
+         */
+        @Override
+        public BitDaySet copy () {
+            long[] words = new long[nWords];
+            for (int w = 0; w < nWords; w++) {
+                words[w] = this.word(w);
+            }
+            return new BitDaySet(ORIGIN, words, this.lo(), this.hi(), this.size());
+        }
+
+        @Override
+        public int count (int from, int to) {
+            from = Math.max(from, this.lo());
+            to = Math.min(to, this.hi());
+            return (from <= to) ? this.countBits(from, to) : 0;
+        }
+
+        private int countBits (int from, int to) {
+            int i = from - ORIGIN, j = to - ORIGIN,
+                wi = i >>> 6, wj = j >>> 6;
+            long firstMask = -1L << i,
+                 lastMask = -1L >>> (63 - (j & 63));
+            if (wi == wj) {
+                return Long.bitCount(this.word(wi) & firstMask & lastMask);
+            }
+            int total = Long.bitCount(this.word(wi) & firstMask);
+            for (int w = wi + 1; w < wj; w++) {
+                total += Long.bitCount(this.word(w));
+            }
+            return total + Long.bitCount(this.word(wj) & lastMask);
+        }
+
+    }
+
+}
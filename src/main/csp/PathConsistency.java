@@ -0,0 +1,362 @@
+package main.csp;
+
+import java.util.*;
+
+/**
+ * Path-consistency preprocessing (PC-2 over a worklist of pairs) for dense
+ * webs of constraints among a few dozen meetings, where arc consistency
+ * leaves domains too loose for search.
+ *
+ * Every pair of meetings i, j gets an explicit relation: a bit matrix over
+ * the compressed date space, in which row a, column b is set when day a of
+ * i's domain and day b of j's are allowed together. Pairs no constraint
+ * relates start out allowing everything. Each relation is then tightened
+ * by its composition through every third meeting k, R_ij &= R_ik . R_kj,
+ * until no relation changes; a day left without any partner in some
+ * relation is removed from its domain.
+ *
+ * Every tightened relation is summarized by the orderings it still allows
+ * and handed back as a BinaryDateConstraint, which is implied by the
+ * original constraints but may relate meetings they did not relate
+ * directly, e.g. 0 < 2 from 0 < 1 and 1 < 2.
+ *
+ * Space is O(n^2 * d^2) bits and each pass through a triangle costs
+ * O(d^3 / 64), for n meetings of d days each. Networks whose relations
+ * would take more than MAX_RELATION_BYTES are refused before anything is
+ * allocated, e.g. 1000 meetings over a year would need about 16GB.
+ */
+public class PathConsistency {
+
+    /**
+     * Most memory the relations between every pair of meetings may take.
+     */
+    public static final long MAX_RELATION_BYTES = 1L << 28;
+
+    public final boolean UNSATISFIABLE;
+
+    // The unary constraints given, and at most one binary constraint per
+    // pair of meetings: the tightest single DateOp each relation implies
+    public final Set<DateConstraint> CONSTRAINTS;
+
+    private PathConsistency (boolean unsatisfiable, Set<DateConstraint> constraints) {
+        this.UNSATISFIABLE = unsatisfiable;
+        this.CONSTRAINTS = constraints;
+    }
+
+    /**
+     * Makes the given domains, and the relations between every pair of them,
+     * path consistent with the given constraints, and derives the binary
+     * constraints this implies. The domains are pruned in place.
+     * @param varDomains  List of MeetingDomains in which index i corresponds to D_i
+     * @param constraints Date constraints on the meeting times, unary and binary
+     * @return The result, flagged UNSATISFIABLE if some domain has been emptied.
+     * @throws IllegalArgumentException if the relations would take more than
+     *         MAX_RELATION_BYTES, in which case the domains are left unchanged
+     */
+    public static PathConsistency of (List<MeetingDomain> varDomains, Set<DateConstraint> constraints) {
+        long bytes = relationBytes(varDomains);
+        if (bytes > MAX_RELATION_BYTES) {
+            throw new IllegalArgumentException("Path consistency over " + varDomains.size()
+                    + " meetings would need " + (bytes >>> 20) + "MB of relations, over the "
+                    + (MAX_RELATION_BYTES >>> 20) + "MB limit");
+        }
+        return new Network(varDomains, constraints).propagate(varDomains, constraints);
+    }
+
+    /**
+     * @return The bytes taken by the relations between every ordered pair of
+     *         distinct meetings, d_i rows of one bit per day of j each.
+     */
+    private static long relationBytes (List<MeetingDomain> varDomains) {
+        long words = 0;
+        for (MeetingDomain domain : varDomains) {
+            words += (domain.size() + 63) >>> 6;
+        }
+        long bytes = 0;
+        for (MeetingDomain domain : varDomains) {
+            bytes += 8L * domain.size() * (words - ((domain.size() + 63) >>> 6));
+        }
+        return bytes;
+    }
+
+    /**
+     * The relations between every pair of meetings, as they are tightened.
+     */
+    private static class Network {
+
+        private final int n;
+        private final int[][] days;
+        private final int[] words;
+        private final long[][] alive;
+        // relations[i][j] holds days[i].length rows of words[j] longs each,
+        // and relations[j][i] is kept its transpose
+        private final long[][][] relations;
+
+        // Days of each meeting waiting to be removed, packed i << 32 | a, and
+        // which of them are waiting so that none is ever pushed twice
+        private final long[] removals;
+        private final long[][] doomed;
+        private int nRemovals;
+        // Pairs lo < hi waiting for their triangles to be revised, packed lo * n + hi
+        private final ArcQueue pairs;
+        // Scratch row for revise, as wide as the widest domain
+        private final long[] composed;
+
+        Network (List<MeetingDomain> varDomains, Set<DateConstraint> constraints) {
+            this.n = varDomains.size();
+            this.days = new int[this.n][];
+            this.words = new int[this.n];
+            this.alive = new long[this.n][];
+            this.doomed = new long[this.n][];
+            int nDays = 0, maxWords = 0;
+            for (int i = 0; i < this.n; i++) {
+                MeetingDomain domain = varDomains.get(i);
+                this.days[i] = new int[domain.size()];
+                int a = 0;
+                for (int day = domain.first(); day != MeetingDomain.NONE; day = domain.next(day + 1)) {
+                    this.days[i][a++] = day;
+                }
+                this.words[i] = (a + 63) >>> 6;
+                this.alive[i] = new long[this.words[i]];
+                this.doomed[i] = new long[this.words[i]];
+                nDays += a;
+                maxWords = Math.max(maxWords, this.words[i]);
+                for (int b = 0; b < a; b++) {
+                    this.alive[i][b >>> 6] |= 1L << b;
+                }
+            }
+            this.removals = new long[Math.max(1, nDays)];
+            this.pairs = new ArcQueue(this.n * this.n, this.n * (this.n - 1) / 2);
+            this.composed = new long[maxWords];
+
+            // Relations start as the masks of the constraints on each pair, if any
+            int[][] masks = new int[this.n][this.n];
+            for (int[] row : masks) {
+                Arrays.fill(row, DateOp.ANY);
+            }
+            for (DateConstraint c : constraints) {
+                if (c.arity() == 2) {
+                    int l = c.L_VAL, r = ((BinaryDateConstraint) c).R_VAL;
+                    masks[l][r] &= c.OPERATOR.MASK;
+                    masks[r][l] &= DateOp.symmetricMask(c.OPERATOR.MASK);
+                }
+            }
+            this.relations = new long[this.n][this.n][];
+            for (int i = 0; i < this.n; i++) {
+                for (int j = 0; j < this.n; j++) {
+                    if (i != j) {
+                        this.relations[i][j] = this.relation(i, j, masks[i][j]);
+                    }
+                }
+            }
+        }
+
+        PathConsistency propagate (List<MeetingDomain> varDomains, Set<DateConstraint> constraints) {
+            for (int i = 0; i < this.n; i++) {
+                for (int j = 0; j < this.n; j++) {
+                    if (i != j) {
+                        this.pruneEmptyRows(i, j);
+                    }
+                }
+            }
+            this.removeQueued();
+            for (int i = 0; i < this.n; i++) {
+                for (int j = i + 1; j < this.n; j++) {
+                    this.enqueue(i, j);
+                }
+            }
+            while (!this.pairs.isEmpty()) {
+                int pair = this.pairs.poll();
+                int i = pair / this.n, j = pair % this.n;
+                for (int k = 0; k < this.n; k++) {
+                    if (k != i && k != j) {
+                        // R_ij sits on two sides of each triangle i, j, k
+                        this.revise(i, k, j);
+                        this.revise(j, k, i);
+                    }
+                }
+                this.removeQueued();
+            }
+
+            boolean unsatisfiable = false;
+            for (int i = 0; i < this.n; i++) {
+                MeetingDomain domain = varDomains.get(i);
+                for (int a = 0; a < this.days[i].length; a++) {
+                    if (!this.isAlive(i, a)) {
+                        domain.remove(this.days[i][a]);
+                    }
+                }
+                unsatisfiable |= domain.isEmpty();
+            }
+            Set<DateConstraint> tightened = new HashSet<>();
+            for (DateConstraint c : constraints) {
+                if (c.arity() == 1) {
+                    tightened.add(c);
+                }
+            }
+            if (!unsatisfiable) {
+                for (int i = 0; i < this.n; i++) {
+                    for (int j = i + 1; j < this.n; j++) {
+                        DateOp op = DateOp.ofMask(this.orderings(i, j));
+                        if (op != null) {
+                            tightened.add(new BinaryDateConstraint(i, op.SYMBOL, j));
+                        }
+                    }
+                }
+            }
+            return new PathConsistency(unsatisfiable, tightened);
+        }
+
+        /**
+         * Tightens R_ik by its composition through j: R_ik &= R_ij . R_jk.
+         */
+        private void revise (int i, int k, int j) {
+            long[] ik = this.relations[i][k], ij = this.relations[i][j], jk = this.relations[j][k];
+            int wi = this.words[i], wj = this.words[j], wk = this.words[k];
+            long[] composed = this.composed;
+            boolean changed = false;
+            for (int a = 0; a < this.days[i].length; a++) {
+                if (!this.isAlive(i, a)) {
+                    continue;
+                }
+                Arrays.fill(composed, 0, wk, 0);
+                for (int w = 0; w < wj; w++) {
+                    for (long bits = ij[a * wj + w]; bits != 0; bits &= bits - 1) {
+                        int b = (w << 6) + Long.numberOfTrailingZeros(bits);
+                        for (int x = 0; x < wk; x++) {
+                            composed[x] |= jk[b * wk + x];
+                        }
+                    }
+                }
+                boolean empty = true;
+                for (int x = 0; x < wk; x++) {
+                    long before = ik[a * wk + x], after = before & composed[x];
+                    if (after != before) {
+                        ik[a * wk + x] = after;
+                        changed = true;
+                        // Keep R_ki the transpose of R_ik
+                        for (long cleared = before & ~after; cleared != 0; cleared &= cleared - 1) {
+                            int c = (x << 6) + Long.numberOfTrailingZeros(cleared);
+                            this.relations[k][i][c * wi + (a >>> 6)] &= ~(1L << a);
+                        }
+                    }
+                    empty &= after == 0;
+                }
+                if (empty) {
+                    this.doom(i, a);
+                }
+            }
+            if (changed) {
+                this.pruneEmptyRows(k, i);
+                this.enqueue(i, k);
+            }
+        }
+
+        private void removeQueued () {
+            while (this.nRemovals > 0) {
+                long removal = this.removals[--this.nRemovals];
+                int i = (int) (removal >>> 32), a = (int) removal;
+                this.doomed[i][a >>> 6] &= ~(1L << a);
+                if (!this.isAlive(i, a)) {
+                    continue;
+                }
+                this.alive[i][a >>> 6] &= ~(1L << a);
+                for (int j = 0; j < this.n; j++) {
+                    if (j == i) {
+                        continue;
+                    }
+                    long[] ij = this.relations[i][j], ji = this.relations[j][i];
+                    int wi = this.words[i], wj = this.words[j];
+                    boolean changed = false;
+                    for (int w = 0; w < wj; w++) {
+                        for (long bits = ij[a * wj + w]; bits != 0; bits &= bits - 1) {
+                            int b = (w << 6) + Long.numberOfTrailingZeros(bits);
+                            ji[b * wi + (a >>> 6)] &= ~(1L << a);
+                            changed = true;
+                        }
+                        ij[a * wj + w] = 0;
+                    }
+                    if (changed) {
+                        this.pruneEmptyRows(j, i);
+                        this.enqueue(i, j);
+                    }
+                }
+            }
+        }
+
+        /**
+         * Queues the removal of every live day of i left with no partner in R_ij.
+         */
+        private void pruneEmptyRows (int i, int j) {
+            long[] ij = this.relations[i][j];
+            int wj = this.words[j];
+            for (int a = 0; a < this.days[i].length; a++) {
+                if (this.isAlive(i, a)) {
+                    boolean empty = true;
+                    for (int w = 0; w < wj && empty; w++) {
+                        empty = ij[a * wj + w] == 0;
+                    }
+                    if (empty) {
+                        this.doom(i, a);
+                    }
+                }
+            }
+        }
+
+        /**
+         * Queues the removal of day a of i, unless it is already waiting.
+         */
+        private void doom (int i, int a) {
+            long bit = 1L << a;
+            if ((this.doomed[i][a >>> 6] & bit) == 0) {
+                this.doomed[i][a >>> 6] |= bit;
+                this.removals[this.nRemovals++] = ((long) i << 32) | a;
+            }
+        }
+
+        private void enqueue (int i, int j) {
+            this.pairs.add(Math.min(i, j) * this.n + Math.max(i, j));
+        }
+
+        private boolean isAlive (int i, int a) {
+            return (this.alive[i][a >>> 6] & (1L << a)) != 0;
+        }
+
+        /**
+         * @return The bit matrix over the days of i and j allowed by mask.
+         */
+        private long[] relation (int i, int j, int mask) {
+            int[] left = this.days[i], right = this.days[j];
+            int wj = this.words[j];
+            long[] matrix = new long[left.length * wj];
+            for (int a = 0; a < left.length; a++) {
+                for (int b = 0; b < right.length; b++) {
+                    int ordering = (left[a] < right[b]) ? DateOp.BEFORE : (left[a] == right[b]) ? DateOp.SAME : DateOp.AFTER;
+                    if ((mask & ordering) != 0) {
+                        matrix[a * wj + (b >>> 6)] |= 1L << b;
+                    }
+                }
+            }
+            return matrix;
+        }
+
+        /**
+         * @return The orderings of i's days relative to j's that R_ij still allows.
+         */
+        private int orderings (int i, int j) {
+            long[] ij = this.relations[i][j];
+            int wj = this.words[j], mask = 0;
+            for (int a = 0; a < this.days[i].length && mask != DateOp.ANY; a++) {
+                for (int w = 0; w < wj; w++) {
+                    for (long bits = ij[a * wj + w]; bits != 0; bits &= bits - 1) {
+                        int day = this.days[j][(w << 6) + Long.numberOfTrailingZeros(bits)];
+                        mask |= (this.days[i][a] < day) ? DateOp.BEFORE : (this.days[i][a] == day) ? DateOp.SAME : DateOp.AFTER;
+                    }
+                }
+            }
+            return mask;
+        }
+
+    }
+
+}
@@ -0,0 +1,47 @@
+package main.csp;
+
+/**
+ * The propagation engines CSPSolver.arcConsistency may run over the binary
+ * constraints, each reaching its fixpoint by different means or to a
+ * different strength, so that the engine can be chosen per workload.
+ */
+public enum Propagation {
+
+    /**
+     * AC-3 whose revisions are specialized by operator: bound truncations
+     * for orderings, a singleton check for != and an intersection for ==.
+     */
+    AC3,
+
+    /**
+     * Bounds consistency: only each domain's first and last days are made
+     * consistent, so orderings and == are all O(1) bound truncations, and
+     * != removes a day only when it is the tail's first or last. Weaker than
+     * AC3 when domains have holes, but meant for horizons of several years.
+     */
+    BOUNDS,
+
+    /**
+     * AC-6 (see AC6Propagator): each day keeps one support per arc, and a
+     * removal only revisits the days it was supporting. Reaches the same
+     * fixpoint as AC3, at O(arcs * d) space, and suits dense instances in
+     * which AC-3 revises the same arcs over and over.
+     */
+    AC6,
+
+    /**
+     * AC3 run on the connected components of the constraint graph in
+     * parallel, reaching the same fixpoint. Only pays off on graphs of many
+     * components with thousands of arcs between them.
+     */
+    PARALLEL,
+
+    /**
+     * AC-3rm, resuming rescans AC-2001 style, treating every operator as a
+     * predicate on pairs of days, only relying on orderings being monotone
+     * to bound its scans. Kept as the reference the specialized revisions
+     * are measured and tested against.
+     */
+    AC3_GENERIC
+
+}
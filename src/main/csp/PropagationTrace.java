@@ -0,0 +1,154 @@
+package main.csp;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+
+/**
+ * Ring buffer of the last revisions made by AC-3 propagation, for
+ * diagnosing propagation without printing it as it happens. Installed with
+ * CSPSolver.setTrace, it records one event per arc revised: the arc, its
+ * meetings and operator, the days it removed from its tail, the days left
+ * in the tail, and the arcs still queued after it.
+ *
+ * Events are stored in one int array allocated up front, so recording
+ * allocates nothing and, once the buffer is full, overwrites the oldest
+ * event. Without a trace installed, propagation pays one null check per
+ * revision. Recording is synchronized, so tasks propagating in parallel may
+ * share a trace, though their events then interleave.
+ *
+ * AC-6, which does not revise arcs, records no events.
+ */
+public class PropagationTrace {
+
+    // Ints per event: arc, tail, head, operator ordinal, removed, remaining, queued
+    private static final int STRIDE = 7;
+
+    private final int[] events;
+    private final int capacity;
+    private long recorded;
+    private Path failureFile;
+    private IOException failure;
+
+    /**
+     * Constructs an empty trace keeping the last capacity events.
+     * @param capacity The number of events kept
+     */
+    public PropagationTrace (int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Trace capacity must be positive: " + capacity);
+        }
+        this.capacity = capacity;
+        this.events = new int[capacity * STRIDE];
+    }
+
+    /**
+     * Has the trace dumped to the given file each time CSPSolver.solve finds
+     * no solution, replacing what the file held.
+     * @param file The file to dump to, or null not to dump on failure
+     * @return This trace.
+     */
+    public synchronized PropagationTrace dumpOnFailure (Path file) {
+        this.failureFile = file;
+        return this;
+    }
+
+    /**
+     * @return The error that kept the last dump on failure from being
+     *         written, or null if it was written or none was attempted.
+     */
+    public synchronized IOException failure () {
+        return this.failure;
+    }
+
+    /**
+     * Records the revision of an arc.
+     * @param arc       The arc revised
+     * @param index     The constraints the arc belongs to
+     * @param removed   The number of days removed from the arc's tail
+     * @param remaining The number of days left in the arc's tail
+     * @param queued    The number of arcs waiting after the revision
+     */
+    synchronized void revision (int arc, ConstraintIndex index, int removed, int remaining, int queued) {
+        int e = (int) (this.recorded % this.capacity) * STRIDE;
+        this.events[e] = arc;
+        this.events[e + 1] = index.tail(arc);
+        this.events[e + 2] = index.head(arc);
+        this.events[e + 3] = index.op(arc).ordinal();
+        this.events[e + 4] = removed;
+        this.events[e + 5] = remaining;
+        this.events[e + 6] = queued;
+        this.recorded++;
+    }
+
+    /**
+     * @return The number of events held, at most the capacity.
+     */
+    public synchronized int size () {
+        return (int) Math.min(this.recorded, this.capacity);
+    }
+
+    /**
+     * @return The number of events recorded since construction or the last
+     *         clear, including those overwritten since.
+     */
+    public synchronized long recorded () {
+        return this.recorded;
+    }
+
+    /**
+     * Forgets every event recorded.
+     */
+    public synchronized void clear () {
+        this.recorded = 0;
+    }
+
+    /**
+     * Writes the events held to the given file, oldest first, one per line,
+     * replacing what the file held.
+     * @param file The file to write to
+     * @throws IOException if the file cannot be written
+     */
+    public synchronized void dump (Path file) throws IOException {
+        try (Writer out = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            this.dump(out);
+        }
+    }
+
+    /**
+     * Writes the events held to the given writer, oldest first, one per line.
+     * @param out The writer to write to, which is left open
+     * @throws IOException if out cannot be written to
+     */
+    public synchronized void dump (Writer out) throws IOException {
+        DateOp[] ops = DateOp.values();
+        out.write("# " + this.size() + " of " + this.recorded + " revisions\n");
+        for (long seq = this.recorded - this.size(); seq < this.recorded; seq++) {
+            int e = (int) (seq % this.capacity) * STRIDE;
+            out.write(seq + "\tarc " + this.events[e] + ": " + this.events[e + 1] + " "
+                    + ops[this.events[e + 3]] + " " + this.events[e + 2]
+                    + "\tremoved " + this.events[e + 4]
+                    + "\tremaining " + this.events[e + 5]
+                    + ((this.events[e + 5] == 0) ? " (wiped out)" : "")
+                    + "\tqueued " + this.events[e + 6] + "\n");
+        }
+        out.flush();
+    }
+
+    /**
+     * Dumps the trace to the file given to dumpOnFailure, if any. An error
+     * writing it is kept for failure() rather than thrown, so that the
+     * solver still reports that no solution exists.
+     */
+    synchronized void failed () {
+        if (this.failureFile != null) {
+            try {
+                this.dump(this.failureFile);
+                this.failure = null;
+            } catch (IOException e) {
+                this.failure = e;
+            }
+        }
+    }
+
+}
@@ -0,0 +1,109 @@
+package main.csp;
+
+import java.util.Arrays;
+
+/**
+ * Residual supports for AC-3rm: for each arc tail -> head and each day of
+ * tail, the day of head that last supported it. A revision only rescans the
+ * head domain for days whose residue has since been pruned, and residues
+ * stay valid hints however domains are later pruned or restored, so they
+ * never need to be undone on backtracking.
+ *
+ * Alongside, AC-2001 style, the last support each day was found by scanning
+ * its own arc: the scan stopped at the first support, and domains only
+ * shrink during one propagation, so no earlier day of head supports it and
+ * a rescan may resume there. Residues recorded for the reverse arc carry no
+ * such guarantee, so the two are kept apart, and a cache must not outlive
+ * the propagation it was made for.
+ *
+ * Each arc's residues are allocated on its first revision, two ints per day
+ * of the tail's extent at that time, so space is O(arcs * d) at worst.
+ */
+public class ResidualSupports {
+
+    private final int[][] supports, lasts;
+    private final int[] origins;
+
+    /**
+     * Constructs an empty cache for arcs numbered 0 to nArcs - 1.
+     * @param nArcs The number of arcs, such as ConstraintIndex.arcs ()
+     */
+    public ResidualSupports (int nArcs) {
+        this.supports = new int[nArcs][];
+        this.lasts = new int[nArcs][];
+        this.origins = new int[nArcs];
+    }
+
+    /**
+     * @param arc An arc index.
+     * @param day An epoch day of the arc's tail.
+     * @return The day of the arc's head last found to support day, or
+     *         MeetingDomain.NONE if there is none on record.
+     */
+    public int get (int arc, int day) {
+        int[] residues = this.supports[arc];
+        if (residues == null) {
+            return MeetingDomain.NONE;
+        }
+        int i = day - this.origins[arc];
+        return (i >= 0 && i < residues.length) ? residues[i] : MeetingDomain.NONE;
+    }
+
+    /**
+     * @param arc An arc index.
+     * @param day An epoch day of the arc's tail.
+     * @return The day of the arc's head at which the last scan for day's
+     *         support stopped, before which no day of head supports it, or
+     *         MeetingDomain.NONE if day has never been scanned for.
+     */
+    public int last (int arc, int day) {
+        int[] lasts = this.lasts[arc];
+        if (lasts == null) {
+            return MeetingDomain.NONE;
+        }
+        int i = day - this.origins[arc];
+        return (i >= 0 && i < lasts.length) ? lasts[i] : MeetingDomain.NONE;
+    }
+
+    /**
+     * Records that scanning the arc's head in ascending order for the first
+     * support of day found support, as both its residue and its last support.
+     * @param arc An arc index.
+     * @param tail The domain of the arc's tail.
+     * @param day An epoch day of the arc's tail.
+     * @param support The first epoch day of the arc's head supporting day.
+     */
+    public void found (int arc, MeetingDomain tail, int day, int support) {
+        this.set(arc, tail, day, support);
+        int i = day - this.origins[arc];
+        if (i >= 0 && i < this.lasts[arc].length) {
+            this.lasts[arc][i] = support;
+        }
+    }
+
+    /**
+     * Records that support supports day across the given arc.
+     * @param arc An arc index.
+     * @param tail The domain of the arc's tail, whose extent sizes the arc's
+     *        residues when they are first allocated.
+     * @param day An epoch day of the arc's tail.
+     * @param support An epoch day of the arc's head.
+     */
+    public void set (int arc, MeetingDomain tail, int day, int support) {
+        int[] residues = this.supports[arc];
+        if (residues == null) {
+            int first = tail.first();
+            residues = this.supports[arc] = new int[tail.last() - first + 1];
+            Arrays.fill(residues, MeetingDomain.NONE);
+            this.lasts[arc] = residues.clone();
+            this.origins[arc] = first;
+        }
+        int i = day - this.origins[arc];
+        // Days outside the first extent only appear once a trail restores
+        // them, and simply go without a residue
+        if (i >= 0 && i < residues.length) {
+            residues[i] = support;
+        }
+    }
+
+}
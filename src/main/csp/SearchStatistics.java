@@ -0,0 +1,75 @@
+package main.csp;
+
+/**
+ * Counts kept by BacktrackingSearch, to compare heuristics and lookaheads
+ * by the size of the search tree rather than by time alone. Passed to
+ * CSPSolver.solve through SolverOptions.statistics, the counts of every
+ * search run with those options add up.
+ */
+public class SearchStatistics {
+
+    private long nodes, backtracks, wipeouts, backjumps;
+
+    /**
+     * @return The number of assignments made, i.e. of nodes of the search
+     *         tree below its root.
+     */
+    public long nodes () {
+        return this.nodes;
+    }
+
+    /**
+     * @return The number of assignments undone, having failed by lookahead
+     *         or having no solution below them.
+     */
+    public long backtracks () {
+        return this.backtracks;
+    }
+
+    /**
+     * @return The number of assignments failed by lookahead wiping out a
+     *         domain.
+     */
+    public long wipeouts () {
+        return this.wipeouts;
+    }
+
+    /**
+     * @return The number of assignments undone without trying their
+     *         meeting's other days, the failure below them being in no
+     *         conflict with them.
+     */
+    public long backjumps () {
+        return this.backjumps;
+    }
+
+    /**
+     * Resets every count to 0.
+     */
+    public void clear () {
+        this.nodes = this.backtracks = this.wipeouts = this.backjumps = 0;
+    }
+
+    void node () {
+        this.nodes++;
+    }
+
+    void backtrack () {
+        this.backtracks++;
+    }
+
+    void wipeout () {
+        this.wipeouts++;
+    }
+
+    void backjump () {
+        this.backjumps++;
+    }
+
+    @Override
+    public String toString () {
+        return "nodes=" + this.nodes + " backtracks=" + this.backtracks + " wipeouts=" + this.wipeouts
+                + " backjumps=" + this.backjumps;
+    }
+
+}
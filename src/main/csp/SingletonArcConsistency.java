@@ -0,0 +1,167 @@
+package main.csp;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Singleton arc consistency (SAC-1) preprocessing for over-constrained
+ * problems: every day left in every domain is tentatively assigned to its
+ * meeting, the rest is propagated with AC-3, and the day is removed if
+ * that wipes out some domain.
+ *
+ * Probes only read the domains, so each round splits them across tasks on
+ * the common ForkJoinPool. Every task probes its own copy-on-write copy of
+ * the domains, attached to a Trail of its own, and undoes each probe by
+ * restoring it rather than by copying again. The days found to fail are
+ * removed from the actual domains once the round is over, and rounds are
+ * repeated until one removes nothing. The fixpoint is unique, so it does
+ * not depend on how many tasks probed it.
+ */
+public class SingletonArcConsistency {
+
+    /**
+     * Enforces singleton arc consistency over the arcs of index, probing in
+     * parallel on the common ForkJoinPool.
+     * @param varDomains List of MeetingDomains in which index i corresponds to D_i
+     * @param index      The binary constraints on those meetings
+     * @return false if some domain is or has been emptied, in which case no
+     *         solution exists.
+     */
+    public static boolean propagate (List<MeetingDomain> varDomains, ConstraintIndex index) {
+        return propagate(varDomains, index, ForkJoinPool.getCommonPoolParallelism());
+    }
+
+    /**
+     * Enforces singleton arc consistency over the arcs of index.
+     * @param varDomains List of MeetingDomains in which index i corresponds to D_i
+     * @param index      The binary constraints on those meetings
+     * @param tasks      The number of tasks to split each round of probes
+     *                   into, 1 to probe on the calling thread alone
+     * @return false if some domain is or has been emptied, in which case no
+     *         solution exists.
+     */
+    public static boolean propagate (List<MeetingDomain> varDomains, ConstraintIndex index, int tasks) {
+        if (!CSPSolver.arcConsistency(varDomains, index)) {
+            return false;
+        }
+        int n = varDomains.size();
+        ArcQueue queue = new ArcQueue(index.arcs());
+        while (true) {
+            // Singletons need no probe: AC has already assigned them
+            int nProbes = 0;
+            for (MeetingDomain domain : varDomains) {
+                nProbes += (domain.size() > 1) ? domain.size() : 0;
+            }
+            int[] meetings = new int[nProbes], days = new int[nProbes];
+            nProbes = 0;
+            for (int m = 0; m < n; m++) {
+                MeetingDomain domain = varDomains.get(m);
+                if (domain.size() > 1) {
+                    for (int day = domain.first(); day != MeetingDomain.NONE; day = domain.next(day + 1)) {
+                        meetings[nProbes] = m;
+                        days[nProbes++] = day;
+                    }
+                }
+            }
+
+            List<int[]> failed;
+            int nTasks = Math.max(1, Math.min(tasks, nProbes));
+            if (nTasks == 1) {
+                failed = Collections.singletonList(probe(copy(varDomains), index, meetings, days, 0, nProbes));
+            } else {
+                // Copies are made here, since copying marks the original shared
+                List<Callable<int[]>> probes = new ArrayList<>(nTasks);
+                for (int t = 0; t < nTasks; t++) {
+                    List<MeetingDomain> domains = copy(varDomains);
+                    int from = (int) ((long) nProbes * t / nTasks), to = (int) ((long) nProbes * (t + 1) / nTasks);
+                    probes.add(() -> probe(domains, index, meetings, days, from, to));
+                }
+                failed = CSPSolver.invokeAll(probes);
+            }
+
+            boolean removed = false;
+            for (int[] probeIndexes : failed) {
+                for (int p : probeIndexes) {
+                    MeetingDomain domain = varDomains.get(meetings[p]);
+                    if (domain.remove(days[p])) {
+                        if (domain.isEmpty()) {
+                            return false;
+                        }
+                        removed = true;
+                        for (int arc : index.arcsInto(meetings[p])) {
+                            queue.add(arc);
+                        }
+                    }
+                }
+            }
+            if (!removed) {
+                return true;
+            }
+            if (!CSPSolver.propagate(varDomains, index, Propagation.AC3, queue)) {
+                return false;
+            }
+        }
+    }
+
+    /**
+     * Probes each of the given days from the "from"th to the "to"th, keeping
+     * the days found to fail removed from domains, which tightens later
+     * probes.
+     * @param domains  Copies of the domains, owned by this probe alone
+     * @param index    The binary constraints on those meetings
+     * @param meetings The meeting of each probe
+     * @param days     The day of each probe
+     * @param from     The first probe (inclusive)
+     * @param to       The last probe (exclusive)
+     * @return The indexes of the probes that failed.
+     */
+    private static int[] probe (List<MeetingDomain> domains, ConstraintIndex index,
+            int[] meetings, int[] days, int from, int to) {
+        Trail trail = new Trail();
+        trail.attach(domains);
+        ArcQueue queue = new ArcQueue(index.arcs());
+        int[] failed = new int[16];
+        int nFailed = 0;
+        for (int p = from; p < to; p++) {
+            MeetingDomain domain = domains.get(meetings[p]);
+            // Days already removed follow from earlier failures, which the
+            // actual domains will propagate too
+            if (!domain.contains(days[p])) {
+                continue;
+            }
+            int level = trail.push();
+            domain.removeBefore(days[p]);
+            domain.removeAfter(days[p]);
+            for (int arc : index.arcsInto(meetings[p])) {
+                queue.add(arc);
+            }
+            boolean consistent = CSPSolver.propagate(domains, index, Propagation.AC3, queue);
+            trail.restore(level);
+            if (consistent) {
+                continue;
+            }
+            if (nFailed == failed.length) {
+                failed = Arrays.copyOf(failed, nFailed * 2);
+            }
+            failed[nFailed++] = p;
+            domain.remove(days[p]);
+            for (int arc : index.arcsInto(meetings[p])) {
+                queue.add(arc);
+            }
+            if (!CSPSolver.propagate(domains, index, Propagation.AC3, queue)) {
+                // No day is left to support: the actual domains will be wiped out too
+                break;
+            }
+        }
+        return Arrays.copyOf(failed, nFailed);
+    }
+
+    private static List<MeetingDomain> copy (List<MeetingDomain> varDomains) {
+        List<MeetingDomain> copies = new ArrayList<>(varDomains.size());
+        for (MeetingDomain domain : varDomains) {
+            copies.add(new MeetingDomain(domain));
+        }
+        return copies;
+    }
+
+}
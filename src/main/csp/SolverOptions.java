@@ -0,0 +1,144 @@
+package main.csp;
+
+/**
+ * Settings of CSPSolver.solve beyond the problem itself, each defaulting to
+ * what solve does without options. Setters return this, such that:
+ * solve(n, start, end, constraints, new SolverOptions().pathConsistency(true))
+ */
+public class SolverOptions {
+
+    private Propagation propagation = Propagation.AC3;
+    private boolean singletonConsistency;
+    private boolean pathConsistency;
+    private boolean leastConstrainingValue = true;
+    private Lookahead lookahead = Lookahead.FORWARD_CHECKING;
+    private boolean backjumping = true;
+    private SearchStatistics statistics;
+
+    /**
+     * @param propagation The engine to make the domains arc consistent with
+     *        before search, Propagation.AC3 by default
+     * @return These options.
+     */
+    public SolverOptions propagation (Propagation propagation) {
+        this.propagation = propagation;
+        return this;
+    }
+
+    /**
+     * @return The engine to make the domains arc consistent with before search.
+     */
+    public Propagation propagation () {
+        return this.propagation;
+    }
+
+    /**
+     * @param singletonConsistency Whether or not to run SingletonArcConsistency
+     *        after arc consistency, probing in parallel. Meant for
+     *        over-constrained problems; off by default.
+     * @return These options.
+     */
+    public SolverOptions singletonConsistency (boolean singletonConsistency) {
+        this.singletonConsistency = singletonConsistency;
+        return this;
+    }
+
+    /**
+     * @return Whether or not to run SingletonArcConsistency before search.
+     */
+    public boolean singletonConsistency () {
+        return this.singletonConsistency;
+    }
+
+    /**
+     * @param pathConsistency Whether or not to run PathConsistency after arc
+     *        consistency and search with the constraints it derives. Meant for
+     *        dense constraints among a few dozen meetings, and refused by
+     *        solve with an IllegalArgumentException when the domains left are
+     *        too large for it (see PathConsistency.MAX_RELATION_BYTES); off by
+     *        default.
+     * @return These options.
+     */
+    public SolverOptions pathConsistency (boolean pathConsistency) {
+        this.pathConsistency = pathConsistency;
+        return this;
+    }
+
+    /**
+     * @return Whether or not to run PathConsistency before search.
+     */
+    public boolean pathConsistency () {
+        return this.pathConsistency;
+    }
+
+    /**
+     * @param leastConstrainingValue Whether or not search tries the days of
+     *        each meeting least constraining first, rather than in ascending
+     *        order; on by default.
+     * @return These options.
+     */
+    public SolverOptions leastConstrainingValue (boolean leastConstrainingValue) {
+        this.leastConstrainingValue = leastConstrainingValue;
+        return this;
+    }
+
+    /**
+     * @return Whether or not search tries days least constraining first.
+     */
+    public boolean leastConstrainingValue () {
+        return this.leastConstrainingValue;
+    }
+
+    /**
+     * @param lookahead How search prunes the domains of the meetings not yet
+     *        assigned after each assignment, Lookahead.FORWARD_CHECKING by
+     *        default
+     * @return These options.
+     */
+    public SolverOptions lookahead (Lookahead lookahead) {
+        this.lookahead = lookahead;
+        return this;
+    }
+
+    /**
+     * @return How search prunes the domains of the meetings not yet assigned.
+     */
+    public Lookahead lookahead () {
+        return this.lookahead;
+    }
+
+    /**
+     * @param backjumping Whether or not search backtracks, on failure, straight
+     *        to the most recent assignment in conflict with the failure,
+     *        rather than to the one before; on by default.
+     * @return These options.
+     */
+    public SolverOptions backjumping (boolean backjumping) {
+        this.backjumping = backjumping;
+        return this;
+    }
+
+    /**
+     * @return Whether or not search jumps back to the assignments in conflict.
+     */
+    public boolean backjumping () {
+        return this.backjumping;
+    }
+
+    /**
+     * @param statistics Counts for search to add its own to, or null
+     * @return These options.
+     */
+    public SolverOptions statistics (SearchStatistics statistics) {
+        this.statistics = statistics;
+        return this;
+    }
+
+    /**
+     * @return The counts search adds its own to, or null if none.
+     */
+    public SearchStatistics statistics () {
+        return this.statistics;
+    }
+
+}
@@ -0,0 +1,129 @@
+package main.csp;
+
+import java.util.*;
+
+/**
+ * Undo log shared by the MeetingDomains of a search, so that backtracking
+ * restores pruned domains in time proportional to the pruning actually
+ * done rather than by copying every domain at every node.
+ *
+ * Each removed date and each window truncation made to an attached domain
+ * is recorded under the current decision level. Opening a level with push
+ * and later calling restore with the level returned before it pops every
+ * entry recorded since, in reverse order. Changes made at level 0 are
+ * permanent and are never recorded.
+ */
+public class Trail {
+
+    // Entry kinds, stored in the first slot of each entry
+    static final int REMOVAL = 0, WINDOW = 1;
+
+    private static final int STRIDE = 4;
+
+    private MeetingDomain[] owners = new MeetingDomain[64];
+    private int[] entries = new int[64 * STRIDE];
+    private int[] marks = new int[16];
+    private int size, level;
+
+    /**
+     * Attaches each of the given domains to this Trail, such that their
+     * subsequent changes may be undone by restore.
+     * @param varDomains List of MeetingDomains in which index i corresponds to D_i
+     * @throws IllegalArgumentException if some domain is read from an
+     *         OffHeapDomainStore, whose domains are decoded anew on each
+     *         access and so would not stay attached; none is then attached
+     */
+    public void attach (List<MeetingDomain> varDomains) {
+        for (MeetingDomain domain : varDomains) {
+            if (domain.isOffHeap()) {
+                throw new IllegalArgumentException("Off-heap domains cannot be attached to a Trail; copy them first");
+            }
+        }
+        for (MeetingDomain domain : varDomains) {
+            domain.trail = this;
+        }
+    }
+
+    /**
+     * @return The current decision level, 0 before any push.
+     */
+    public int level () {
+        return this.level;
+    }
+
+    /**
+     * @return The number of entries currently recorded.
+     */
+    public int size () {
+        return this.size;
+    }
+
+    /**
+     * Opens a new decision level.
+     * @return The level that was current before this push, which may later be
+     *         passed to restore to undo everything done from here on.
+     */
+    public int push () {
+        if (this.level == this.marks.length) {
+            this.marks = Arrays.copyOf(this.marks, this.level * 2);
+        }
+        this.marks[this.level] = this.size;
+        return this.level++;
+    }
+
+    /**
+     * Undoes every change recorded above the given decision level, most
+     * recent first, and makes it the current level again.
+     * @param level A level previously returned by push.
+     */
+    public void restore (int level) {
+        if (level >= this.level) {
+            return;
+        }
+        int mark = this.marks[level];
+        while (this.size > mark) {
+            this.size--;
+            int e = this.size * STRIDE;
+            this.owners[this.size].undo(this.entries[e], this.entries[e + 1], this.entries[e + 2], this.entries[e + 3]);
+            this.owners[this.size] = null;
+        }
+        this.level = level;
+    }
+
+    /**
+     * Records that the given day has been removed from the domain.
+     * @param owner The domain that changed.
+     * @param day The epoch day removed.
+     */
+    void recordRemoval (MeetingDomain owner, int day) {
+        this.record(owner, REMOVAL, day, 0, 0);
+    }
+
+    /**
+     * Records the window the domain had before a truncation.
+     * @param owner The domain that changed.
+     * @param lo The window start before the truncation.
+     * @param hi The window end before the truncation.
+     * @param size The domain's size before the truncation.
+     */
+    void recordWindow (MeetingDomain owner, int lo, int hi, int size) {
+        this.record(owner, WINDOW, lo, hi, size);
+    }
+
+    private void record (MeetingDomain owner, int kind, int a, int b, int c) {
+        if (this.level == 0) {
+            return;
+        }
+        if (this.size == this.owners.length) {
+            this.owners = Arrays.copyOf(this.owners, this.size * 2);
+            this.entries = Arrays.copyOf(this.entries, this.size * 2 * STRIDE);
+        }
+        int e = this.size * STRIDE;
+        this.owners[this.size++] = owner;
+        this.entries[e] = kind;
+        this.entries[e + 1] = a;
+        this.entries[e + 2] = b;
+        this.entries[e + 3] = c;
+    }
+
+}
@@ -1,7 +1,6 @@
 package main.csp;
 
 import java.time.LocalDate;
-import java.util.*;
 
 /**
  * UnaryDateConstraints are those in which one variable
@@ -15,6 +14,9 @@ import java.util.*;
 public class UnaryDateConstraint extends DateConstraint {
 
     public final LocalDate R_VAL;
+
+    // R_VAL's epoch day, precomputed for the solver's primitive comparisons
+    public final int R_DAY;
     
     /**
      * Constructs a new UnaryDateConstraint of the format:
@@ -27,6 +29,7 @@ public class UnaryDateConstraint extends DateConstraint {
     public UnaryDateConstraint (int lVal, String operator, LocalDate rVal) {
         super(lVal, operator, 1);
         this.R_VAL = rVal;
+        this.R_DAY = MeetingDomain.toEpochDay(rVal);
     }
     
     @Override
@@ -37,15 +40,14 @@ public class UnaryDateConstraint extends DateConstraint {
     @Override
     public boolean equals (Object other) {
         if (this == other) { return true; }
-        if (this.getClass() != other.getClass()) { return false; }
+        if (other == null || this.getClass() != other.getClass()) { return false; }
         UnaryDateConstraint otherDC = (UnaryDateConstraint) other;
-        return (this.L_VAL == otherDC.L_VAL && this.OP.equals(otherDC.OP) && this.R_VAL.equals(otherDC.R_VAL));
+        return this.L_VAL == otherDC.L_VAL && this.OPERATOR == otherDC.OPERATOR && this.R_DAY == otherDC.R_DAY;
     }
     
     @Override
     public int hashCode () {
-        return Objects.hash(this.L_VAL) * Objects.hash(this.OP) * Objects.hash(this.R_VAL);
+        return DateConstraint.hash(this.L_VAL, this.OPERATOR.ordinal(), this.R_DAY);
     }
     
-    
 }
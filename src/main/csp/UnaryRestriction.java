@@ -0,0 +1,93 @@
+package main.csp;
+
+import java.util.Arrays;
+
+/**
+ * The conjunction of every unary constraint on one meeting, folded into a
+ * single [lo, hi] interval of epoch days plus the days excluded by != so
+ * that a domain can be restricted with two truncations and one removal per
+ * exclusion, however many constraints were folded.
+ */
+public class UnaryRestriction {
+
+    private int lo = Integer.MIN_VALUE, hi = Integer.MAX_VALUE;
+    private int[] excluded = new int[0];
+    private int nExcluded;
+
+    /**
+     * Folds the constraint "meeting op day" into this restriction.
+     * @param op The constraint's comparator
+     * @param day The epoch day the meeting is compared to
+     */
+    public void add (DateOp op, int day) {
+        switch (op) {
+        case EQ: this.lo = Math.max(this.lo, day); this.hi = Math.min(this.hi, day); break;
+        case NE: this.exclude(day); break;
+        case LT: this.hi = Math.min(this.hi, day - 1); break;
+        case LE: this.hi = Math.min(this.hi, day); break;
+        case GT: this.lo = Math.max(this.lo, day + 1); break;
+        case GE: this.lo = Math.max(this.lo, day); break;
+        }
+    }
+
+    /**
+     * Folds the given unary constraint into this restriction.
+     * @param c A unary constraint on this restriction's meeting.
+     */
+    public void add (UnaryDateConstraint c) {
+        this.add(c.OPERATOR, c.R_DAY);
+    }
+
+    /**
+     * Restricts the given domain to the days allowed by every constraint
+     * folded so far.
+     * @param domain The meeting's domain.
+     * @return true if any date has been removed from the domain.
+     */
+    public boolean applyTo (MeetingDomain domain) {
+        boolean removed = domain.removeBefore(this.lo);
+        removed |= domain.removeAfter(this.hi);
+        for (int i = 0; i < this.nExcluded; i++) {
+            removed |= domain.remove(this.excluded[i]);
+        }
+        return removed;
+    }
+
+    /**
+     * @return The earliest epoch day allowed, Integer.MIN_VALUE if unbounded.
+     */
+    public int lo () {
+        return this.lo;
+    }
+
+    /**
+     * @return The latest epoch day allowed, Integer.MAX_VALUE if unbounded.
+     */
+    public int hi () {
+        return this.hi;
+    }
+
+    /**
+     * @return The distinct excluded epoch days within [lo, hi], in ascending order.
+     */
+    public int[] excluded () {
+        return Arrays.stream(this.excluded, 0, this.nExcluded)
+                .filter(day -> day >= this.lo && day <= this.hi)
+                .sorted().distinct().toArray();
+    }
+
+    /**
+     * @return Whether or not the folded constraints admit no day at all.
+     */
+    public boolean isEmpty () {
+        return this.lo > this.hi || (long) this.hi - this.lo + 1 <= this.excluded().length;
+    }
+
+    private void exclude (int day) {
+        if (this.nExcluded == this.excluded.length) {
+            this.excluded = Arrays.copyOf(this.excluded, Math.max(4, this.nExcluded * 2));
+        }
+        this.excluded[this.nExcluded++] = day;
+    }
+
+}
@@ -0,0 +1,611 @@
+package test.csp;
+
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import main.csp.*;
+
+/**
+ * Micro-benchmarks for the CSP data structures, run by hand with:
+ *     java test.csp.CSPBenchmarks
+ * Timings are wall-clock best-of-N after a warmup, and only meant to
+ * compare implementations against one another on the same machine.
+ */
+public class CSPBenchmarks {
+
+    static final int RUNS = 5;
+
+    public static void main (String[] args) {
+        constraintHashing(100_000);
+        constraintHashing(1_000_000);
+        revision(Propagation.AC3_GENERIC, 200, 365);
+        revision(Propagation.AC3, 200, 365);
+        revision(Propagation.AC3_GENERIC, 50, 5 * 365);
+        revision(Propagation.AC3, 50, 5 * 365);
+        revision(Propagation.AC3, 5000, 20 * 365);
+        revision(Propagation.BOUNDS, 5000, 20 * 365);
+        tracing(1 << 16, 5000, 20 * 365);
+        for (Propagation propagation : Propagation.values()) {
+            bipartite(propagation, 50, 150);
+            bipartite(propagation, 200, 365);
+        }
+        regions(Propagation.AC3, 2000, 20, 365);
+        regions(Propagation.PARALLEL, 2000, 20, 365);
+        incremental(2000, 365, 2000);
+        dense(false, 16, 30);
+        dense(true, 16, 30);
+        dense(false, 40, 60);
+        dense(true, 40, 60);
+        search(16, 30, 2);
+        search(30, 30, 4);
+        valueOrdering(300, 10);
+        lookahead(100, 100, 8);
+        lookahead(60, 30, 2);
+        reviews(12, 8, 10);
+        reviews(10, 5, 10);
+        backjumping(12, 12);
+        backjumping(200, 12);
+        weeks(0, 200, 10);
+        weeks(1, 200, 10);
+        weeks(ForkJoinPool.getCommonPoolParallelism(), 200, 10);
+    }
+
+    // Constraint Hashing
+    // -------------------------------------------------
+
+    /**
+     * HashSet insert and lookup throughput over n distinct binary constraints,
+     * with the current hashCode / equals against the previous
+     * Objects.hash(L_VAL) * Objects.hash(OP) * Objects.hash(R_VAL) hash and
+     * getReverse () based equality. The previous equality compared the
+     * reversed constraint the wrong way around, so it finds none of the
+     * reversed lookups.
+     */
+    static void constraintHashing (int n) {
+        List<BinaryDateConstraint> constraints = binaryConstraints(n);
+        List<LegacyKey> legacy = new ArrayList<>(n);
+        for (BinaryDateConstraint c : constraints) {
+            legacy.add(new LegacyKey(c));
+        }
+        // Lookups are for equal but not identical constraints, written reversed
+        List<BinaryDateConstraint> probes = new ArrayList<>(n);
+        List<LegacyKey> legacyProbes = new ArrayList<>(n);
+        for (BinaryDateConstraint c : constraints) {
+            probes.add(c.getReverse());
+            legacyProbes.add(new LegacyKey(c.getReverse()));
+        }
+
+        report("canonical", n, constraints, probes);
+        report("legacy", n, legacy, legacyProbes);
+    }
+
+    static <T> void report (String label, int n, List<T> inserts, List<T> probes) {
+        long bestInsert = Long.MAX_VALUE, bestLookup = Long.MAX_VALUE;
+        int found = 0;
+        for (int run = 0; run <= RUNS; run++) {
+            long start = System.nanoTime();
+            Set<T> set = new HashSet<>();
+            for (T c : inserts) {
+                set.add(c);
+            }
+            long inserted = System.nanoTime();
+            found = 0;
+            for (T c : probes) {
+                if (set.contains(c)) {
+                    found++;
+                }
+            }
+            long looked = System.nanoTime();
+            // Run 0 is the warmup
+            if (run > 0) {
+                bestInsert = Math.min(bestInsert, inserted - start);
+                bestLookup = Math.min(bestLookup, looked - inserted);
+            }
+        }
+        System.out.printf("%-10s n=%-8d insert %8.2f Mops/s   lookup %8.2f Mops/s   (%d found)%n",
+                label, n, n * 1e3 / bestInsert, n * 1e3 / bestLookup, found);
+    }
+
+    /**
+     * Distinct binary constraints over pairs of nearby meetings, the shape
+     * that made the commutative hash collide: (i, j) and (j, i) pairs, and
+     * products of small indexes, abound.
+     */
+    static List<BinaryDateConstraint> binaryConstraints (int n) {
+        String[] ops = { "==", "!=", "<", "<=", ">", ">=" };
+        int nMeetings = (int) Math.ceil(Math.sqrt(2.0 * n)) + 2;
+        List<BinaryDateConstraint> constraints = new ArrayList<>(n);
+        Random random = new Random(2130);
+        for (int l = 0; l < nMeetings && constraints.size() < n; l++) {
+            for (int r = l + 1; r < nMeetings && constraints.size() < n; r++) {
+                // One constraint per pair, written in either direction
+                String op = ops[random.nextInt(ops.length)];
+                constraints.add(random.nextBoolean()
+                        ? new BinaryDateConstraint(l, op, r)
+                        : new BinaryDateConstraint(r, op, l));
+            }
+        }
+        Collections.shuffle(constraints, random);
+        return constraints;
+    }
+
+    // Revision
+    // -------------------------------------------------
+
+    /**
+     * Time to reach the arc-consistent fixpoint of a chain of orderings among
+     * nMeetings meetings over nDays days, tied together by random == and !=,
+     * with the given engine.
+     */
+    static void revision (Propagation propagation, int nMeetings, int nDays) {
+        propagation("chain", propagation, nMeetings, nDays, chain(nMeetings));
+    }
+
+    static Set<DateConstraint> chain (int nMeetings) {
+        String[] ops = { "<", "<=", ">", ">=", "!=" };
+        Random random = new Random(2130);
+        Set<DateConstraint> constraints = new HashSet<>();
+        for (int m = 0; m + 1 < nMeetings; m++) {
+            constraints.add(new BinaryDateConstraint(m, ops[random.nextInt(ops.length)], m + 1));
+            int other = random.nextInt(nMeetings);
+            if (other != m) {
+                constraints.add(new BinaryDateConstraint(m, random.nextInt(8) == 0 ? "==" : "!=", other));
+            }
+        }
+        return constraints;
+    }
+
+    /**
+     * Same as revision with Propagation.AC3, recording every revision to a
+     * PropagationTrace of the given capacity.
+     */
+    static void tracing (int capacity, int nMeetings, int nDays) {
+        PropagationTrace trace = new PropagationTrace(capacity);
+        CSPSolver.setTrace(trace);
+        try {
+            propagation("traced", Propagation.AC3, nMeetings, nDays, chain(nMeetings));
+        } finally {
+            CSPSolver.setTrace(null);
+        }
+        System.out.printf("          %d revisions recorded, %d kept%n", trace.recorded(), trace.size());
+    }
+
+    /**
+     * Same as revision, on the dense bipartite pattern of CSPLocalTests.solve_t4:
+     * every meeting of one half is either before or after every meeting of
+     * the other, which makes AC-3 revise the same arcs many times over.
+     */
+    static void bipartite (Propagation propagation, int nMeetings, int nDays) {
+        Set<DateConstraint> constraints = new HashSet<>();
+        for (int i = 1; i < nMeetings / 2; i++) {
+            for (int j = nMeetings / 2; j < nMeetings; j++) {
+                constraints.add(new BinaryDateConstraint(i, (i % 2 == 0) ? ">" : "<", j));
+            }
+        }
+        propagation("bipartite", propagation, nMeetings, nDays, constraints);
+    }
+
+    /**
+     * Same as bipartite, on nRegions independent copies of a bipartite
+     * pattern among size meetings, the shape Propagation.PARALLEL splits
+     * across cores.
+     */
+    static void regions (Propagation propagation, int nRegions, int size, int nDays) {
+        Set<DateConstraint> constraints = new HashSet<>();
+        for (int r = 0; r < nRegions; r++) {
+            for (int i = 1; i < size / 2; i++) {
+                for (int j = size / 2; j < size; j++) {
+                    constraints.add(new BinaryDateConstraint(r * size + i, (i % 2 == 0) ? ">" : "<", r * size + j));
+                }
+            }
+        }
+        propagation("regions", propagation, nRegions * size, nDays, constraints);
+    }
+
+    static void propagation (String label, Propagation propagation, int nMeetings, int nDays,
+            Set<DateConstraint> constraints) {
+        ConstraintIndex index = new ConstraintIndex(nMeetings, constraints);
+        LocalDate start = LocalDate.of(2023, 1, 1), end = start.plusDays(nDays - 1);
+
+        long best = Long.MAX_VALUE;
+        int remaining = 0;
+        for (int run = 0; run <= RUNS; run++) {
+            List<MeetingDomain> domains = domains(nMeetings, start, end);
+            long begin = System.nanoTime();
+            CSPSolver.arcConsistency(domains, index, propagation);
+            long elapsed = System.nanoTime() - begin;
+            if (run > 0) {
+                best = Math.min(best, elapsed);
+            }
+            remaining = 0;
+            for (MeetingDomain domain : domains) {
+                remaining += domain.size();
+            }
+        }
+        System.out.printf("%-9s %-11s meetings=%-4d days=%-5d %10.3f ms   (%d days remaining)%n",
+                label, propagation, nMeetings, nDays, best / 1e6, remaining);
+    }
+
+    // Incremental Propagation
+    // -------------------------------------------------
+
+    /**
+     * Time to add nAdded random constraints one at a time to a propagated
+     * problem of nMeetings meetings over nDays days, either through an
+     * IncrementalPropagator or by re-running arcConsistency from scratch
+     * after each addition.
+     */
+    static void incremental (int nMeetings, int nDays, int nAdded) {
+        String[] ops = { "<", "<=", ">", ">=", "!=", "==" };
+        Random random = new Random(2130);
+        LocalDate start = LocalDate.of(2023, 1, 1), end = start.plusDays(nDays - 1);
+        Set<DateConstraint> initial = new HashSet<>();
+        for (int m = 0; m + 1 < nMeetings; m += 2) {
+            initial.add(new BinaryDateConstraint(m, "!=", m + 1));
+        }
+        List<DateConstraint> added = new ArrayList<>();
+        while (added.size() < nAdded) {
+            int l = random.nextInt(nMeetings), r = random.nextInt(nMeetings);
+            if (l != r) {
+                // Mostly loose, so that the problem stays satisfiable throughout
+                added.add(new BinaryDateConstraint(l, random.nextInt(10) == 0 ? ops[random.nextInt(ops.length)] : "!=", r));
+            }
+        }
+
+        long begin = System.nanoTime();
+        IncrementalPropagator propagator = new IncrementalPropagator(domains(nMeetings, start, end), initial);
+        for (DateConstraint c : added) {
+            propagator.addConstraint(c);
+        }
+        long incremental = System.nanoTime() - begin;
+
+        begin = System.nanoTime();
+        Set<DateConstraint> constraints = new HashSet<>(initial);
+        List<MeetingDomain> domains = domains(nMeetings, start, end);
+        CSPSolver.arcConsistency(domains, constraints);
+        for (DateConstraint c : added) {
+            constraints.add(c);
+            CSPSolver.arcConsistency(domains, constraints);
+        }
+        long scratch = System.nanoTime() - begin;
+        System.out.printf("incremental meetings=%-5d days=%-5d added=%-5d %10.3f ms   from scratch %10.3f ms   (consistent: %b)%n",
+                nMeetings, nDays, nAdded, incremental / 1e6, scratch / 1e6, propagator.isConsistent());
+    }
+
+    // Path Consistency
+    // -------------------------------------------------
+
+    /**
+     * Time to propagate a dense web of <, <= and != among nMeetings meetings
+     * over nDays days, every pair related with probability 1/2 and all of
+     * them satisfied by a hidden schedule, to arc consistency alone or then
+     * to path consistency, and the days left for search to choose from.
+     */
+    static void dense (boolean pathConsistency, int nMeetings, int nDays) {
+        LocalDate start = LocalDate.of(2023, 1, 1), end = start.plusDays(nDays - 1);
+        Set<DateConstraint> constraints = planted(nMeetings, nDays, 2);
+        ConstraintIndex index = new ConstraintIndex(nMeetings, constraints);
+
+        long best = Long.MAX_VALUE;
+        int remaining = 0, derived = constraints.size();
+        for (int run = 0; run <= RUNS; run++) {
+            List<MeetingDomain> domains = domains(nMeetings, start, end);
+            long begin = System.nanoTime();
+            CSPSolver.arcConsistency(domains, index);
+            if (pathConsistency) {
+                derived = PathConsistency.of(domains, constraints).CONSTRAINTS.size();
+            }
+            long elapsed = System.nanoTime() - begin;
+            if (run > 0) {
+                best = Math.min(best, elapsed);
+            }
+            remaining = 0;
+            for (MeetingDomain domain : domains) {
+                remaining += domain.size();
+            }
+        }
+        System.out.printf("dense     %-11s meetings=%-4d days=%-5d %10.3f ms   (%d days remaining, %d constraints)%n",
+                pathConsistency ? "AC3+PC" : "AC3", nMeetings, nDays, best / 1e6, remaining, derived);
+    }
+
+    /**
+     * Random <, <=, > and != among nMeetings meetings over nDays days,
+     * relating each pair with probability 1 / sparsity, all satisfied by a
+     * hidden schedule.
+     */
+    static Set<DateConstraint> planted (int nMeetings, int nDays, int sparsity) {
+        Random random = new Random(2130);
+        int[] hidden = new int[nMeetings];
+        for (int m = 0; m < nMeetings; m++) {
+            hidden[m] = random.nextInt(nDays);
+        }
+        Set<DateConstraint> constraints = new HashSet<>();
+        for (int i = 0; i < nMeetings; i++) {
+            for (int j = i + 1; j < nMeetings; j++) {
+                if (random.nextInt(sparsity) == 0) {
+                    String op = (hidden[i] == hidden[j]) ? "<="
+                              : (random.nextInt(3) == 0) ? "!="
+                              : (hidden[i] < hidden[j]) ? (random.nextBoolean() ? "<" : "<=") : ">";
+                    constraints.add(new BinaryDateConstraint(i, op, j));
+                }
+            }
+        }
+        return constraints;
+    }
+
+    // Search
+    // -------------------------------------------------
+
+    /**
+     * Time to solve a planted instance of nMeetings meetings over nDays days,
+     * after arc consistency, by BacktrackingSearch and by backtracking in
+     * index order, as CSPSolver did before variable ordering, though trying
+     * each meeting's own days only.
+     */
+    static void search (int nMeetings, int nDays, int sparsity) {
+        LocalDate start = LocalDate.of(2023, 1, 1), end = start.plusDays(nDays - 1);
+        Set<DateConstraint> constraints = planted(nMeetings, nDays, sparsity);
+        ConstraintIndex index = new ConstraintIndex(nMeetings, constraints);
+        List<MeetingDomain> domains = domains(nMeetings, start, end);
+        CSPSolver.arcConsistency(domains, index);
+
+        long best = Long.MAX_VALUE, bestIndexOrder = Long.MAX_VALUE;
+        for (int run = 0; run <= RUNS; run++) {
+            long begin = System.nanoTime();
+            new BacktrackingSearch(domains, index).solve();
+            long elapsed = System.nanoTime() - begin;
+            int[] assignment = new int[nMeetings];
+            Arrays.fill(assignment, MeetingDomain.NONE);
+            begin = System.nanoTime();
+            indexOrder(assignment, 0, index, domains);
+            long indexOrder = System.nanoTime() - begin;
+            if (run > 0) {
+                best = Math.min(best, elapsed);
+                bestIndexOrder = Math.min(bestIndexOrder, indexOrder);
+            }
+        }
+        System.out.printf("search    meetings=%-4d days=%-5d constraints=%-5d %10.3f ms   index order %10.3f ms%n",
+                nMeetings, nDays, constraints.size(), best / 1e6, bestIndexOrder / 1e6);
+    }
+
+    static boolean indexOrder (int[] assignment, int m, ConstraintIndex index, List<MeetingDomain> domains) {
+        if (m == assignment.length) {
+            return true;
+        }
+        MeetingDomain domain = domains.get(m);
+        for (int day = domain.first(); day != MeetingDomain.NONE; day = domain.next(day + 1)) {
+            assignment[m] = day;
+            if (index.isConsistent(m, assignment) && indexOrder(assignment, m + 1, index, domains)) {
+                return true;
+            }
+        }
+        assignment[m] = MeetingDomain.NONE;
+        return false;
+    }
+
+    /**
+     * Time to solve the weekly plan of nMeetings meetings over nWeeks weeks
+     * with and without least-constraining-value ordering.
+     */
+    static void valueOrdering (int nMeetings, int nWeeks) {
+        LocalDate start = LocalDate.of(2023, 1, 2), end = start.plusWeeks(nWeeks).minusDays(3);
+        Set<DateConstraint> constraints = weeklyPlan(nMeetings, nWeeks, start);
+        for (boolean leastConstraining : new boolean[] { false, true }) {
+            SolverOptions options = new SolverOptions().leastConstrainingValue(leastConstraining);
+            long best = Long.MAX_VALUE;
+            boolean solved = false;
+            for (int run = 0; run <= RUNS; run++) {
+                long begin = System.nanoTime();
+                solved = CSPSolver.solve(nMeetings, start, end, constraints, options) != null;
+                long elapsed = System.nanoTime() - begin;
+                if (run > 0) {
+                    best = Math.min(best, elapsed);
+                }
+            }
+            System.out.printf("values    %-11s meetings=%-4d weeks=%-4d %10.3f ms   (solved: %b)%n",
+                    leastConstraining ? "LCV" : "ascending", nMeetings, nWeeks, best / 1e6, solved);
+        }
+    }
+
+    /**
+     * Time and search nodes to solve a planted instance of nMeetings
+     * meetings over nDays days with each Lookahead.
+     */
+    static void lookahead (int nMeetings, int nDays, int sparsity) {
+        lookahead("planted", nMeetings, nDays, planted(nMeetings, nDays, sparsity));
+    }
+
+    /**
+     * Same as lookahead, on nProjects project-review calendars over nDays
+     * days: each project's four reviews come in order, at least a day
+     * apart, and nReviewers reviewers attend one review a day at most.
+     * Every reviewer's reviews are kept to those of two projects at a time,
+     * so the projects are tightly coupled.
+     */
+    static void reviews (int nProjects, int nReviewers, int nDays) {
+        Random random = new Random(2130);
+        Set<DateConstraint> constraints = new HashSet<>();
+        List<List<Integer>> attended = new ArrayList<>();
+        for (int r = 0; r < nReviewers; r++) {
+            attended.add(new ArrayList<>());
+        }
+        for (int p = 0; p < nProjects; p++) {
+            for (int stage = 0; stage < 4; stage++) {
+                int m = 4 * p + stage;
+                if (stage > 0) {
+                    constraints.add(new BinaryDateConstraint(m - 1, "<", m));
+                }
+                int reviewer = (p + random.nextInt(2)) % nReviewers;
+                for (int other : attended.get(reviewer)) {
+                    constraints.add(new BinaryDateConstraint(other, "!=", m));
+                }
+                attended.get(reviewer).add(m);
+            }
+        }
+        lookahead("reviews", 4 * nProjects, nDays, constraints);
+    }
+
+    static void lookahead (String label, int nMeetings, int nDays, Set<DateConstraint> constraints) {
+        LocalDate start = LocalDate.of(2023, 1, 1), end = start.plusDays(nDays - 1);
+        for (Lookahead lookahead : Lookahead.values()) {
+            SearchStatistics statistics = new SearchStatistics();
+            SolverOptions options = new SolverOptions().lookahead(lookahead).statistics(statistics);
+            long best = Long.MAX_VALUE;
+            boolean solved = false;
+            for (int run = 0; run <= RUNS; run++) {
+                statistics.clear();
+                long begin = System.nanoTime();
+                solved = CSPSolver.solve(nMeetings, start, end, constraints, options) != null;
+                long elapsed = System.nanoTime() - begin;
+                if (run > 0) {
+                    best = Math.min(best, elapsed);
+                }
+            }
+            System.out.printf("%-9s %-17s meetings=%-4d days=%-5d %10.3f ms   (%d nodes, solved: %b)%n",
+                    label, lookahead, nMeetings, nDays, best / 1e6, statistics.nodes(), solved);
+        }
+    }
+
+    /**
+     * Time and search nodes to refute nPairs pairs of meetings apart on two
+     * days each, which MRV assigns first, followed by four meetings that
+     * cannot be apart on the three days they have, with and without
+     * backjumping. Chronological backtracking retries each of the 2^nPairs
+     * assignments of the pairs, so is only run up to maxChronological pairs.
+     */
+    static void backjumping (int nPairs, int maxChronological) {
+        LocalDate start = LocalDate.of(2023, 1, 1), end = start.plusDays(2);
+        Set<DateConstraint> constraints = new HashSet<>();
+        for (int i = 0; i < 4; i++) {
+            for (int j = i + 1; j < 4; j++) {
+                constraints.add(new BinaryDateConstraint(i, "!=", j));
+            }
+        }
+        for (int m = 4; m < 4 + 2 * nPairs; m += 2) {
+            constraints.add(new UnaryDateConstraint(m, "<", end));
+            constraints.add(new UnaryDateConstraint(m + 1, "<", end));
+            constraints.add(new BinaryDateConstraint(m, "!=", m + 1));
+        }
+        for (boolean backjumping : new boolean[] {false, true}) {
+            if (!backjumping && nPairs > maxChronological) {
+                continue;
+            }
+            SearchStatistics statistics = new SearchStatistics();
+            SolverOptions options = new SolverOptions().backjumping(backjumping).statistics(statistics);
+            long best = Long.MAX_VALUE;
+            for (int run = 0; run <= RUNS; run++) {
+                statistics.clear();
+                long begin = System.nanoTime();
+                CSPSolver.solve(4 + 2 * nPairs, start, end, constraints, options);
+                long elapsed = System.nanoTime() - begin;
+                if (run > 0) {
+                    best = Math.min(best, elapsed);
+                }
+            }
+            System.out.printf("%-13s meetings=%-4d %10.3f ms   (%d nodes, %d backjumps)%n",
+                    backjumping ? "backjumping" : "chronological", 4 + 2 * nPairs, best / 1e6,
+                    statistics.nodes(), statistics.backjumps());
+        }
+    }
+
+    // Singleton Arc Consistency
+    // -------------------------------------------------
+
+    /**
+     * Time to propagate the weekly plan of nMeetings meetings over nWeeks
+     * weeks: arc consistency alone for 0 tasks, or singleton arc
+     * consistency probed by the given number of tasks, and the days left for
+     * search to choose from.
+     */
+    static void weeks (int tasks, int nMeetings, int nWeeks) {
+        LocalDate start = LocalDate.of(2023, 1, 2), end = start.plusWeeks(nWeeks).minusDays(3);
+        Set<DateConstraint> constraints = weeklyPlan(nMeetings, nWeeks, start);
+        ConstraintIndex index = new ConstraintIndex(nMeetings, constraints);
+
+        long best = Long.MAX_VALUE;
+        int remaining = 0;
+        boolean consistent = true;
+        for (int run = 0; run <= RUNS; run++) {
+            List<MeetingDomain> domains = domains(nMeetings, start, end);
+            CSPSolver.nodeConsistency(domains, constraints);
+            long begin = System.nanoTime();
+            consistent = (tasks == 0)
+                    ? CSPSolver.arcConsistency(domains, index)
+                    : SingletonArcConsistency.propagate(domains, index, tasks);
+            long elapsed = System.nanoTime() - begin;
+            if (run > 0) {
+                best = Math.min(best, elapsed);
+            }
+            remaining = 0;
+            for (MeetingDomain domain : domains) {
+                remaining += domain.size();
+            }
+        }
+        System.out.printf("weeks     %-11s meetings=%-4d weeks=%-4d %10.3f ms   (%d days remaining, consistent: %b)%n",
+                (tasks == 0) ? "AC3" : "SAC x" + tasks, nMeetings, nWeeks, best / 1e6, remaining, consistent);
+    }
+
+    /**
+     * nMeetings meetings over nWeeks working weeks from start, each limited
+     * to a random week and related to a third of the others in it by !=, <
+     * or >, all satisfied by a hidden schedule.
+     */
+    static Set<DateConstraint> weeklyPlan (int nMeetings, int nWeeks, LocalDate start) {
+        Random random = new Random(2130);
+        Set<DateConstraint> constraints = new HashSet<>();
+        int[] week = new int[nMeetings], hidden = new int[nMeetings];
+        for (int m = 0; m < nMeetings; m++) {
+            week[m] = random.nextInt(nWeeks);
+            hidden[m] = random.nextInt(5);
+            constraints.add(new UnaryDateConstraint(m, ">=", start.plusWeeks(week[m])));
+            constraints.add(new UnaryDateConstraint(m, "<=", start.plusWeeks(week[m]).plusDays(4)));
+        }
+        for (int i = 0; i < nMeetings; i++) {
+            for (int j = i + 1; j < nMeetings; j++) {
+                if (week[i] == week[j] && hidden[i] != hidden[j] && random.nextInt(3) == 0) {
+                    String op = (random.nextInt(4) != 0) ? "!=" : (hidden[i] < hidden[j]) ? "<" : ">";
+                    constraints.add(new BinaryDateConstraint(i, op, j));
+                }
+            }
+        }
+        return constraints;
+    }
+
+    static List<MeetingDomain> domains (int nMeetings, LocalDate start, LocalDate end) {
+        List<MeetingDomain> domains = new ArrayList<>();
+        for (int m = 0; m < nMeetings; m++) {
+            domains.add(new MeetingDomain(start, end));
+        }
+        return domains;
+    }
+
+    /**
+     * BinaryDateConstraint's hashCode and equals as they were before
+     * canonical forms, kept only to compare against.
+     */
+    static class LegacyKey {
+
+        final BinaryDateConstraint c;
+
+        LegacyKey (BinaryDateConstraint c) {
+            this.c = c;
+        }
+
+        @Override
+        public boolean equals (Object other) {
+            if (this == other) { return true; }
+            if (this.getClass() != other.getClass()) { return false; }
+            BinaryDateConstraint otherDC = ((LegacyKey) other).c;
+            BinaryDateConstraint reversed = this.c.getReverse();
+            return (this.c.L_VAL == otherDC.L_VAL && this.c.OP.equals(otherDC.OP) && this.c.R_VAL == otherDC.R_VAL) ||
+                   (reversed.R_VAL == otherDC.L_VAL && reversed.OP.equals(otherDC.OP) && reversed.L_VAL == otherDC.R_VAL);
+        }
+
+        @Override
+        public int hashCode () {
+            return Objects.hash(this.c.L_VAL) * Objects.hash(this.c.OP) * Objects.hash(this.c.R_VAL);
+        }
+
+    }
+
+}
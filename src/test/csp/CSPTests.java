@@ -10,6 +10,8 @@ import org.junit.rules.TestWatcher;
 import org.junit.rules.Timeout;
 import org.junit.runner.Description;
 
+import java.io.*;
+import java.nio.file.*;
 import java.time.LocalDate;
 import java.util.*;
 import main.csp.*;
@@ -96,14 +98,156 @@ public class CSPTests {
         return domains;
     }
     
+    /**
+     * Helper method for constraining meetings to pairwise different days.
+     * @param constraints The set of constraints to add to.
+     * @param from First meeting (inclusive) of the group.
+     * @param to Last meeting (exclusive) of the group.
+     * @return The given set of constraints, with i != j added for every pair of the group.
+     */
+    public static Set<DateConstraint> pairwiseApart (Set<DateConstraint> constraints, int from, int to) {
+        for (int i = from; i < to; i++) {
+            for (int j = i + 1; j < to; j++) {
+                constraints.add(new BinaryDateConstraint(i, "!=", j));
+            }
+        }
+        return constraints;
+    }
+    
     
     // =================================================
     // Unit Tests
     // =================================================
     
+    // MeetingDomain Tests
+    // -------------------------------------------------
+
+    @Test
+    public void domain_t0() {
+        LocalDate startRange = LocalDate.of(2022, 1, 1),
+                  endRange   = LocalDate.of(2022, 4, 30);
+
+        // 120 days spans two words of the underlying bitset
+        MeetingDomain domain = new MeetingDomain(startRange, endRange);
+        int start = MeetingDomain.toEpochDay(startRange),
+            end   = MeetingDomain.toEpochDay(endRange);
+
+        assertEquals(120, domain.size());
+        assertEquals(start, domain.first());
+        assertTrue(domain.remove(start));
+        assertTrue(domain.remove(start + 64));
+        assertTrue(!domain.remove(start + 64));
+        assertTrue(!domain.remove(end + 1));
+
+        assertEquals(118, domain.size());
+        assertEquals(118, domain.domainValues.size());
+        assertEquals(start + 1, domain.first());
+        assertEquals(start + 65, domain.next(start + 64));
+        assertEquals(MeetingDomain.NONE, domain.next(end + 1));
+        assertTrue(!domain.domainValues.contains(startRange));
+        assertTrue(domain.domainValues.contains(endRange));
+
+        // Copies are independent of the original
+        MeetingDomain copy = new MeetingDomain(domain);
+        copy.domainValues.remove(endRange);
+        assertEquals(117, copy.size());
+        assertTrue(domain.contains(end));
+    }
+
+    @Test
+    public void domain_t1() {
+        LocalDate startRange = LocalDate.of(2022, 1, 1),
+                  endRange   = LocalDate.of(2026, 12, 31);
+
+        // Five year horizon stored as date intervals
+        MeetingDomain domain = MeetingDomain.ofIntervals(startRange, endRange);
+        int start = MeetingDomain.toEpochDay(startRange),
+            mid   = MeetingDomain.toEpochDay(LocalDate.of(2024, 6, 1));
+
+        assertEquals(1826, domain.size());
+        assertTrue(domain.remove(mid));
+        assertTrue(domain.removeBefore(start + 10));
+        assertTrue(domain.removeAfter(mid + 10));
+        assertTrue(!domain.removeAfter(mid + 10));
+
+        assertEquals(mid + 10 - (start + 10), domain.size());
+        assertEquals(start + 10, domain.first());
+        assertEquals(mid + 10, domain.last());
+        assertEquals(mid + 1, domain.next(mid));
+        assertEquals(mid - 1, domain.prev(mid));
+        assertTrue(!domain.domainValues.contains(LocalDate.of(2024, 6, 1)));
+    }
+
+    @Test
+    public void domain_t2() {
+        LocalDate startRange = LocalDate.of(2022, 1, 1),
+                  endRange   = LocalDate.of(2022, 1, 31);
+
+        List<MeetingDomain> domains = Arrays.asList(
+            new MeetingDomain(startRange, endRange),
+            MeetingDomain.ofIntervals(startRange, endRange)
+        );
+        Trail trail = new Trail();
+        trail.attach(domains);
+        int start = MeetingDomain.toEpochDay(startRange);
+
+        int root = trail.push();
+        for (MeetingDomain domain : domains) {
+            domain.remove(start + 5);
+            domain.removeAfter(start + 20);
+        }
+        int mid = trail.push();
+        for (MeetingDomain domain : domains) {
+            domain.removeBefore(start + 10);
+            domain.remove(start + 15);
+            assertEquals(10, domain.size());
+        }
+
+        // Undo only the deeper level...
+        trail.restore(mid);
+        for (MeetingDomain domain : domains) {
+            assertEquals(20, domain.size());
+            assertTrue(domain.contains(start + 15));
+            assertTrue(!domain.contains(start + 5));
+        }
+
+        // ...then everything
+        trail.restore(root);
+        assertEquals(0, trail.size());
+        for (MeetingDomain domain : domains) {
+            assertEquals(31, domain.size());
+            assertEquals(start + 30, domain.last());
+        }
+    }
+
+    @Test
+    public void domain_t3() {
+        int start = MeetingDomain.toEpochDay(LocalDate.of(2022, 1, 1));
+        DaySet base = new BitDaySet(start, start + 9);
+
+        // Views read the base until they are pruned
+        MeetingDomain d0 = MeetingDomain.viewOf(base),
+                      d1 = MeetingDomain.viewOf(base);
+        assertTrue(!d0.remove(start + 10));
+        assertTrue(d0.isShared());
+        assertTrue(d0.remove(start));
+        assertTrue(!d0.isShared());
+        assertTrue(d1.isShared());
+        assertEquals(9, d0.size());
+        assertEquals(10, d1.size());
+        assertEquals(10, base.size());
+
+        // Copies share storage with the original until either is pruned
+        MeetingDomain copy = new MeetingDomain(d0);
+        assertTrue(copy.isShared() && d0.isShared());
+        d0.removeBefore(start + 5);
+        assertEquals(5, d0.size());
+        assertEquals(9, copy.size());
+    }
+
     // Filtering Tests
     // -------------------------------------------------
-    
+
     @Test
     public void filtering_t0() {
         Set<DateConstraint> constraints = new HashSet<>(
@@ -327,8 +471,591 @@ public class CSPTests {
         assertEquals(2, domains.get(1).domainValues.size());
         assertEquals(2, domains.get(2).domainValues.size());
     }
+
+    @Test
+    public void filtering_t10() {
+        Set<DateConstraint> constraints = new HashSet<>(
+            Arrays.asList(
+                new BinaryDateConstraint(1, "!=", 0),
+                new BinaryDateConstraint(1, "<", 2),
+                new UnaryDateConstraint(2, "<=", LocalDate.of(2022, 1, 3)),
+                new UnaryDateConstraint(0, ">=", LocalDate.of(2022, 1, 3))
+            )
+        );
+
+        // Same as filtering_t9, but with domains and constraints kept off-heap
+        OffHeapDomainStore store = OffHeapDomainStore.of(
+            3, LocalDate.of(2022, 1, 1), LocalDate.of(2022, 1, 5), constraints
+        );
+        assertEquals(constraints, store.constraints());
+
+        nodeConsistency(store.domains(), store.constraints());
+        arcConsistency(store.domains(), store.constraints());
+
+        assertEquals(3, store.domain(0).domainValues.size());
+        assertEquals(2, store.domain(1).domainValues.size());
+        assertEquals(2, store.domain(2).domainValues.size());
+        assertTrue(store.domain(1).domainValues.contains(LocalDate.of(2022, 1, 1)));
+    }
+
+
+    @Test
+    public void filtering_t11() {
+        // A chain 0 <= 1 <= ... <= n-1 of 10^5 arcs, with meeting 0 pinned to
+        // the last day, which must propagate all the way down the chain
+        int n = 50_001;
+        Set<DateConstraint> constraints = new HashSet<>();
+        for (int i = 0; i + 1 < n; i++) {
+            constraints.add(new BinaryDateConstraint(i, "<=", i + 1));
+        }
+        constraints.add(new UnaryDateConstraint(0, "==", LocalDate.of(2022, 1, 3)));
+        List<MeetingDomain> domains = new ArrayList<>();
+        for (int i = 0; i < n; i++) {
+            domains.add(new MeetingDomain(LocalDate.of(2022, 1, 1), LocalDate.of(2022, 1, 3)));
+        }
+
+        nodeConsistency(domains, constraints);
+        arcConsistency(domains, constraints);
+
+        for (MeetingDomain domain : domains) {
+            assertEquals(new HashSet<>(Arrays.asList(LocalDate.of(2022, 1, 3))), domain.domainValues);
+        }
+    }
+
+
+    @Test
+    public void filtering_t12() {
+        // 0 < 1 < ... < n-1 over a full year: meeting i must leave i days
+        // before it and n-1-i days after it
+        int n = 60;
+        LocalDate startRange = LocalDate.of(2022, 1, 1),
+                  endRange   = LocalDate.of(2022, 12, 31);
+        Set<DateConstraint> constraints = new HashSet<>();
+        for (int i = 0; i + 1 < n; i++) {
+            constraints.add(new BinaryDateConstraint(i + 1, ">", i));
+            constraints.add(new BinaryDateConstraint(i, "!=", (i + 2) % n));
+        }
+        List<MeetingDomain> domains = generateDomains(n, startRange, endRange);
+
+        arcConsistency(domains, constraints);
+
+        for (int i = 0; i < n; i++) {
+            assertEquals(365 - (n - 1), domains.get(i).domainValues.size());
+            assertEquals(startRange.plusDays(i).toEpochDay(), domains.get(i).first());
+            assertEquals(endRange.minusDays(n - 1 - i).toEpochDay(), domains.get(i).last());
+        }
+    }
+
+
+    @Test
+    public void filtering_t13() {
+        Set<DateConstraint> constraints = new HashSet<>(
+            Arrays.asList(
+                new BinaryDateConstraint(0, "<", 1),
+                new BinaryDateConstraint(2, ">=", 1),
+                new BinaryDateConstraint(2, "==", 3),
+                new BinaryDateConstraint(3, "!=", 4),
+                new UnaryDateConstraint(3, "!=", LocalDate.of(2022, 1, 3)),
+                new UnaryDateConstraint(4, "==", LocalDate.of(2022, 1, 5))
+            )
+        );
+        LocalDate startRange = LocalDate.of(2022, 1, 1),
+                  endRange   = LocalDate.of(2022, 1, 5);
+
+        // Operator-specialized revisions reach the same fixpoint as generic ones
+        List<MeetingDomain> specialized = generateDomains(5, startRange, endRange),
+                            generic     = generateDomains(5, startRange, endRange);
+        nodeConsistency(specialized, constraints);
+        nodeConsistency(generic, constraints);
+        assertTrue(arcConsistency(specialized, new ConstraintIndex(5, constraints), Propagation.AC3));
+        assertTrue(arcConsistency(generic, new ConstraintIndex(5, constraints), Propagation.AC3_GENERIC));
+
+        for (int i = 0; i < 5; i++) {
+            assertEquals(generic.get(i).domainValues, specialized.get(i).domainValues);
+        }
+        assertEquals(new HashSet<>(Arrays.asList(LocalDate.of(2022, 1, 2), LocalDate.of(2022, 1, 4))),
+                specialized.get(3).domainValues);
+        assertEquals(1, specialized.get(4).domainValues.size());
+    }
+
+
+    @Test
+    public void filtering_t14() {
+        Set<DateConstraint> constraints = new HashSet<>(
+            Arrays.asList(
+                new BinaryDateConstraint(0, "==", 1),
+                new BinaryDateConstraint(1, "<", 2),
+                new BinaryDateConstraint(2, "!=", 3),
+                new UnaryDateConstraint(0, "!=", LocalDate.of(2022, 1, 2)),
+                new UnaryDateConstraint(3, "==", LocalDate.of(2022, 1, 5))
+            )
+        );
+        LocalDate startRange = LocalDate.of(2022, 1, 1),
+                  endRange   = LocalDate.of(2022, 1, 5);
+        List<MeetingDomain> domains = generateDomains(4, startRange, endRange);
+        nodeConsistency(domains, constraints);
+
+        assertTrue(arcConsistency(domains, new ConstraintIndex(4, constraints), Propagation.BOUNDS));
+
+        // 2 != 3 takes 2's last day, which 1 < 2 and 0 == 1 carry over as
+        // bounds, but 1 keeps 2022-1-2 although 0 cannot take it
+        assertEquals(new HashSet<>(Arrays.asList(LocalDate.of(2022, 1, 2), LocalDate.of(2022, 1, 3), LocalDate.of(2022, 1, 4))),
+                domains.get(2).domainValues);
+        assertEquals(new HashSet<>(Arrays.asList(LocalDate.of(2022, 1, 1), LocalDate.of(2022, 1, 3))),
+                domains.get(0).domainValues);
+        assertEquals(3, domains.get(1).domainValues.size());
+        assertTrue(domains.get(1).domainValues.contains(LocalDate.of(2022, 1, 2)));
+    }
+
+    @Test
+    public void filtering_t15() {
+        // Chain of 5000 orderings over 20 years, propagated on bounds alone
+        int n = 5000;
+        LocalDate startRange = LocalDate.of(2020, 1, 1),
+                  endRange   = LocalDate.of(2039, 12, 31);
+        Set<DateConstraint> constraints = new HashSet<>();
+        for (int i = 0; i + 1 < n; i++) {
+            constraints.add(new BinaryDateConstraint(i, i % 2 == 0 ? "<" : "<=", i + 1));
+        }
+        List<MeetingDomain> domains = new ArrayList<>();
+        for (int i = 0; i < n; i++) {
+            domains.add(MeetingDomain.ofIntervals(startRange, endRange));
+        }
+
+        assertTrue(arcConsistency(domains, new ConstraintIndex(n, constraints), Propagation.BOUNDS));
+
+        assertEquals(startRange.toEpochDay(), domains.get(0).first());
+        assertEquals(startRange.plusDays(n / 2).toEpochDay(), domains.get(n - 1).first());
+        assertEquals(endRange.minusDays(n / 2).toEpochDay(), domains.get(0).last());
+    }
+
+
+    @Test
+    public void filtering_t16() {
+        // Dense bipartite pattern, with a few != and == thrown in
+        int n = 20;
+        Set<DateConstraint> constraints = new HashSet<>();
+        for (int i = 1; i < n / 2; i++) {
+            for (int j = n / 2; j < n; j++) {
+                constraints.add(new BinaryDateConstraint(i, (i % 2 == 0) ? ">" : "<", j));
+            }
+        }
+        constraints.add(new BinaryDateConstraint(0, "==", 3));
+        constraints.add(new BinaryDateConstraint(0, "!=", 1));
+        constraints.add(new UnaryDateConstraint(1, "<=", LocalDate.of(2022, 1, 4)));
+        LocalDate startRange = LocalDate.of(2022, 1, 1),
+                  endRange   = LocalDate.of(2022, 1, 10);
+
+        // AC-6 reaches the same fixpoint as AC-3
+        List<MeetingDomain> ac3 = generateDomains(n, startRange, endRange),
+                            ac6 = generateDomains(n, startRange, endRange);
+        nodeConsistency(ac3, constraints);
+        nodeConsistency(ac6, constraints);
+        assertTrue(arcConsistency(ac3, new ConstraintIndex(n, constraints), Propagation.AC3));
+        assertTrue(arcConsistency(ac6, new ConstraintIndex(n, constraints), Propagation.AC6));
+
+        for (int i = 0; i < n; i++) {
+            assertEquals(ac3.get(i).domainValues, ac6.get(i).domainValues);
+        }
+        assertEquals(LocalDate.of(2022, 1, 9).toEpochDay(), ac6.get(n - 1).last());
+    }
+
+
+    @Test
+    public void filtering_t17() {
+        // 128 independent dense regions, enough arcs for several parallel tasks
+        int regions = 128, size = 20, n = regions * size;
+        String[] ops = { "<", "<=", ">", ">=", "!=", "==" };
+        Random random = new Random(2130);
+        Set<DateConstraint> constraints = new HashSet<>();
+        for (int r = 0; r < regions; r++) {
+            for (int i = 0; i < size; i++) {
+                for (int j = i + 1; j < size; j++) {
+                    if (random.nextInt(3) == 0) {
+                        constraints.add(new BinaryDateConstraint(r * size + i, ops[random.nextInt(ops.length)], r * size + j));
+                    }
+                }
+            }
+            constraints.add(new UnaryDateConstraint(r * size, "!=", LocalDate.of(2022, 1, 1 + r % 5)));
+        }
+        LocalDate startRange = LocalDate.of(2022, 1, 1),
+                  endRange   = LocalDate.of(2022, 1, 10);
+
+        // The parallel fixpoint is the sequential one, region by region
+        List<MeetingDomain> sequential = generateDomains(n, startRange, endRange),
+                            parallel   = generateDomains(n, startRange, endRange);
+        nodeConsistency(sequential, constraints);
+        nodeConsistency(parallel, constraints);
+        ConstraintIndex index = new ConstraintIndex(n, constraints);
+        assertEquals(arcConsistency(sequential, index, Propagation.AC3), arcConsistency(parallel, index, Propagation.PARALLEL));
+
+        for (int i = 0; i < n; i++) {
+            assertEquals(sequential.get(i).domainValues, parallel.get(i).domainValues);
+        }
+    }
+
+
+    @Test
+    public void filtering_t18() {
+        Set<DateConstraint> constraints = new HashSet<>(
+            Arrays.asList(
+                new BinaryDateConstraint(0, "<", 1),
+                new UnaryDateConstraint(2, "<=", LocalDate.of(2022, 1, 3))
+            )
+        );
+        LocalDate startRange = LocalDate.of(2022, 1, 1),
+                  endRange   = LocalDate.of(2022, 1, 5);
+        IncrementalPropagator propagator = new IncrementalPropagator(generateDomains(3, startRange, endRange), constraints);
+        List<MeetingDomain> domains = propagator.domains();
+        assertEquals(4, domains.get(0).domainValues.size());
+        assertEquals(3, domains.get(2).domainValues.size());
+
+        // Each addition prunes what follows from it, and only that
+        assertTrue(propagator.addConstraint(new BinaryDateConstraint(2, ">", 1)));
+        assertEquals(new HashSet<>(Arrays.asList(LocalDate.of(2022, 1, 1))), domains.get(0).domainValues);
+        assertEquals(new HashSet<>(Arrays.asList(LocalDate.of(2022, 1, 2))), domains.get(1).domainValues);
+        assertEquals(new HashSet<>(Arrays.asList(LocalDate.of(2022, 1, 3))), domains.get(2).domainValues);
+
+        // 1 < 2 is 2 > 1 again, and changes nothing
+        assertTrue(propagator.addConstraint(new BinaryDateConstraint(1, "<", 2)));
+        assertEquals(3, propagator.constraints().size());
+        assertTrue(!propagator.addConstraint(new UnaryDateConstraint(0, "!=", LocalDate.of(2022, 1, 1))));
+        assertTrue(!propagator.isConsistent());
+        assertEquals(0, domains.get(2).domainValues.size());
+    }
+
+    @Test
+    public void filtering_t19() {
+        // Path consistency relates meetings no constraint relates directly
+        Set<DateConstraint> constraints = new HashSet<>(
+            Arrays.asList(
+                new BinaryDateConstraint(0, "<", 1),
+                new BinaryDateConstraint(1, "<", 2)
+            )
+        );
+        LocalDate startRange = LocalDate.of(2022, 1, 1),
+                  endRange   = LocalDate.of(2022, 1, 5);
+        List<MeetingDomain> domains = generateDomains(3, startRange, endRange);
+        arcConsistency(domains, new ConstraintIndex(3, constraints));
+        PathConsistency pc = PathConsistency.of(domains, constraints);
+        assertTrue(!pc.UNSATISFIABLE);
+        assertTrue(pc.CONSTRAINTS.contains(new BinaryDateConstraint(2, ">", 0)));
+        assertEquals(3, pc.CONSTRAINTS.size());
+
+        // Three meetings on two days, pairwise apart: arc consistent, but
+        // no day of one meeting leaves the other two apart
+        constraints = new HashSet<>(
+            Arrays.asList(
+                new BinaryDateConstraint(0, "!=", 1),
+                new BinaryDateConstraint(1, "!=", 2),
+                new BinaryDateConstraint(0, "!=", 2)
+            )
+        );
+        endRange = LocalDate.of(2022, 1, 2);
+        domains = generateDomains(3, startRange, endRange);
+        assertTrue(arcConsistency(domains, new ConstraintIndex(3, constraints)));
+        assertEquals(2, domains.get(0).domainValues.size());
+        assertTrue(PathConsistency.of(domains, constraints).UNSATISFIABLE);
+        assertEquals(0, domains.get(0).domainValues.size());
+        assertNull(solve(3, startRange, endRange, constraints, new SolverOptions().pathConsistency(true)));
+
+        // A thousand meetings over a year would need gigabytes of relations,
+        // so are refused before any is allocated
+        domains = generateDomains(1000, LocalDate.of(2022, 1, 1), LocalDate.of(2022, 12, 31));
+        try {
+            PathConsistency.of(domains, constraints);
+            fail("Ran path consistency over 1000 meetings of 365 days");
+        } catch (IllegalArgumentException e) {
+            assertEquals(365, domains.get(0).domainValues.size());
+        }
+    }
+
+    @Test
+    public void filtering_t20() {
+        // Meeting 0 on Jan 2 leaves 1 and 2 both Jan 3, which arc consistency
+        // cannot see without trying it
+        Set<DateConstraint> constraints = new HashSet<>(
+            Arrays.asList(
+                new BinaryDateConstraint(0, "<", 1),
+                new BinaryDateConstraint(0, "<", 2),
+                new BinaryDateConstraint(1, "!=", 2)
+            )
+        );
+        LocalDate startRange = LocalDate.of(2022, 1, 1),
+                  endRange   = LocalDate.of(2022, 1, 3);
+        ConstraintIndex index = new ConstraintIndex(3, constraints);
+        List<MeetingDomain> domains = generateDomains(3, startRange, endRange);
+        assertTrue(arcConsistency(domains, index));
+        assertEquals(2, domains.get(0).domainValues.size());
+
+        // However many tasks probe it, the result is the same
+        for (int tasks = 1; tasks <= 3; tasks++) {
+            domains = generateDomains(3, startRange, endRange);
+            assertTrue(SingletonArcConsistency.propagate(domains, index, tasks));
+            assertEquals(new HashSet<>(Arrays.asList(LocalDate.of(2022, 1, 1))), domains.get(0).domainValues);
+            assertEquals(2, domains.get(1).domainValues.size());
+            assertEquals(2, domains.get(2).domainValues.size());
+        }
+
+        // A third day-apart meeting leaves none
+        constraints.add(new BinaryDateConstraint(3, "!=", 1));
+        constraints.add(new BinaryDateConstraint(3, "!=", 2));
+        constraints.add(new BinaryDateConstraint(3, ">", 0));
+        domains = generateDomains(4, startRange, endRange);
+        assertTrue(arcConsistency(domains, new ConstraintIndex(4, constraints)));
+        assertTrue(!SingletonArcConsistency.propagate(domains, new ConstraintIndex(4, constraints)));
+    }
+
+    @Test
+    public void filtering_t21() throws IOException {
+        // The trace keeps the last revisions only...
+        Set<DateConstraint> constraints = new HashSet<>();
+        for (int m = 0; m + 1 < 10; m++) {
+            constraints.add(new BinaryDateConstraint(m, "<", m + 1));
+        }
+        LocalDate startRange = LocalDate.of(2022, 1, 1),
+                  endRange   = LocalDate.of(2022, 1, 31);
+        PropagationTrace trace = new PropagationTrace(4);
+        setTrace(trace);
+        try {
+            assertTrue(arcConsistency(generateDomains(10, startRange, endRange), new ConstraintIndex(10, constraints)));
+            assertTrue(trace.recorded() > 4);
+            assertEquals(4, trace.size());
+            StringWriter out = new StringWriter();
+            trace.dump(out);
+            assertEquals(5, out.toString().split("\n").length);
+            assertTrue(out.toString().startsWith("# 4 of " + trace.recorded() + " revisions"));
+
+            // ...and is dumped when no solution exists, wipeouts included
+            Path file = Files.createTempFile("trace", ".txt");
+            trace = new PropagationTrace(64).dumpOnFailure(file);
+            setTrace(trace);
+            assertNull(solve(10, startRange, LocalDate.of(2022, 1, 9), constraints));
+            List<String> lines = Files.readAllLines(file);
+            Files.delete(file);
+            assertEquals(trace.size() + 1, lines.size());
+            assertTrue(lines.stream().anyMatch(line -> line.contains("(wiped out)")));
+            assertNull(trace.failure());
+
+            // ...and a file that cannot be written does not hide the failure
+            trace.dumpOnFailure(file.resolveSibling(file.getFileName() + ".missing").resolve("trace.txt"));
+            assertNull(solve(10, startRange, LocalDate.of(2022, 1, 9), constraints));
+            assertNotNull(trace.failure());
+        } finally {
+            setTrace(null);
+        }
+    }
+
+    @Test
+    public void filtering_t22() {
+        // The store's own filtering agrees with the solver's on the heap
+        Set<DateConstraint> constraints = new HashSet<>(
+            Arrays.asList(
+                new BinaryDateConstraint(0, "<", 1),
+                new BinaryDateConstraint(1, "<=", 2),
+                new BinaryDateConstraint(2, "!=", 3),
+                new BinaryDateConstraint(3, "==", 4),
+                new UnaryDateConstraint(2, "<", LocalDate.of(2022, 1, 4)),
+                new UnaryDateConstraint(3, "==", LocalDate.of(2022, 1, 2)),
+                new UnaryDateConstraint(4, "!=", LocalDate.of(2022, 1, 3))
+            )
+        );
+        LocalDate startRange = LocalDate.of(2022, 1, 1),
+                  endRange   = LocalDate.of(2022, 1, 5);
+        OffHeapDomainStore store = OffHeapDomainStore.of(5, startRange, endRange, constraints);
+        List<MeetingDomain> domains = generateDomains(5, startRange, endRange);
+        store.nodeConsistency();
+        assertTrue(store.arcConsistency());
+        nodeConsistency(domains, constraints);
+        assertTrue(arcConsistency(domains, new ConstraintIndex(5, constraints)));
+        for (int m = 0; m < 5; m++) {
+            assertEquals(domains.get(m).domainValues, store.domain(m).domainValues);
+        }
+        // Propagating again reuses the worklist, and finds the fixpoint reached
+        assertTrue(store.arcConsistency());
+        assertEquals(domains.get(0).domainValues, store.domain(0).domainValues);
+
+        // Constraints added afterwards are compiled into the arcs too
+        store.addConstraint(new BinaryDateConstraint(0, ">", 4));
+        assertTrue(!store.arcConsistency());
+
+        // Off-heap domains do not stay attached to a Trail, so are refused
+        try {
+            new Trail().attach(store.domains());
+            fail("Attached off-heap domains to a Trail");
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+    }
+
+
+    @Test
+    public void filtering_t23() {
+        // Arcs are queued in index order, so 0 < 1 and 0 != 1 are revised
+        // while 1 has every day, and rescanned once the rest prunes 1 at
+        // both ends: 0's days whose supports are gone either resume their
+        // scan past them, or have none left
+        Set<DateConstraint> constraints = new LinkedHashSet<>(
+            Arrays.asList(
+                new BinaryDateConstraint(0, "<", 1),
+                new BinaryDateConstraint(0, "!=", 1),
+                new BinaryDateConstraint(1, ">", 2),
+                new BinaryDateConstraint(2, ">=", 3),
+                new UnaryDateConstraint(3, ">=", LocalDate.of(2022, 1, 3)),
+                new BinaryDateConstraint(1, "<", 4),
+                new BinaryDateConstraint(4, "<=", 5),
+                new UnaryDateConstraint(5, "<=", LocalDate.of(2022, 1, 7))
+            )
+        );
+        LocalDate startRange = LocalDate.of(2022, 1, 1),
+                  endRange   = LocalDate.of(2022, 1, 10);
+        List<MeetingDomain> generic = generateDomains(6, startRange, endRange),
+                            specialized = generateDomains(6, startRange, endRange);
+        nodeConsistency(generic, constraints);
+        nodeConsistency(specialized, constraints);
+        assertTrue(arcConsistency(generic, new ConstraintIndex(6, constraints), Propagation.AC3_GENERIC));
+        assertTrue(arcConsistency(specialized, new ConstraintIndex(6, constraints), Propagation.AC3));
+
+        assertEquals(
+            new HashSet<>(Arrays.asList(
+                LocalDate.of(2022, 1, 4), LocalDate.of(2022, 1, 5), LocalDate.of(2022, 1, 6)
+            )),
+            generic.get(1).domainValues
+        );
+        assertEquals(5, generic.get(0).size());
+        assertEquals(LocalDate.of(2022, 1, 5), LocalDate.ofEpochDay(generic.get(0).last()));
+        for (int m = 0; m < 6; m++) {
+            assertEquals(specialized.get(m).domainValues, generic.get(m).domainValues);
+        }
+    }
     
     
+    // Constraint Tests
+    // -------------------------------------------------
+
+    @Test
+    public void constraint_t0() {
+        // A binary constraint and its reverse are the same constraint...
+        assertEquals(new BinaryDateConstraint(0, "<", 1), new BinaryDateConstraint(1, ">", 0));
+        assertEquals(new BinaryDateConstraint(0, "<", 1).hashCode(), new BinaryDateConstraint(1, ">", 0).hashCode());
+        // ...but swapping only the meetings is not
+        assertNotEquals(new BinaryDateConstraint(0, "<", 1), new BinaryDateConstraint(1, "<", 0));
+        assertNotEquals(new BinaryDateConstraint(0, "<", 1).hashCode(), new BinaryDateConstraint(1, "<", 0).hashCode());
+        assertNotEquals(new BinaryDateConstraint(0, "<", 1), null);
+        assertEquals(new UnaryDateConstraint(2, "!=", LocalDate.of(2023, 1, 1)), new UnaryDateConstraint(2, "!=", LocalDate.of(2023, 1, 1)));
+        assertNotEquals(new UnaryDateConstraint(2, "!=", LocalDate.of(2023, 1, 1)), new UnaryDateConstraint(2, "!=", LocalDate.of(2023, 1, 2)));
+    }
+
+    @Test
+    public void constraint_t1() {
+        ConstraintPool pool = new ConstraintPool();
+        DateConstraint first = pool.intern(new BinaryDateConstraint(3, ">=", 1));
+        assertSame(first, pool.intern(new BinaryDateConstraint(1, "<=", 3)));
+        assertNotSame(first, pool.intern(new BinaryDateConstraint(1, "<", 3)));
+        assertSame(first, pool.internAll(Arrays.asList(new BinaryDateConstraint(1, "<=", 3))).iterator().next());
+        assertEquals(2, pool.size());
+    }
+
+    @Test
+    public void constraint_t2() {
+        Set<DateConstraint> constraints = new HashSet<>(
+            Arrays.asList(
+                new BinaryDateConstraint(0, "<", 1),
+                new BinaryDateConstraint(2, "!=", 1),
+                new UnaryDateConstraint(0, ">=", LocalDate.of(2023, 1, 2))
+            )
+        );
+        ConstraintIndex index = new ConstraintIndex(4, constraints);
+        assertEquals(4, index.arcs());
+        assertEquals(1, index.degree(0));
+        assertEquals(2, index.degree(1));
+        assertEquals(0, index.degree(3));
+        assertEquals(1, index.unary(0).length);
+
+        // Each arc leaves its tail and enters its head, and its reverse is
+        // arc ^ 1, with the operator read from the other side
+        for (int a = 0; a < index.arcs(); a++) {
+            int arc = a, tail = index.tail(arc), head = index.head(arc);
+            assertTrue(Arrays.stream(index.arcsFrom(tail)).anyMatch(other -> other == arc));
+            assertTrue(Arrays.stream(index.arcsInto(head)).anyMatch(other -> other == arc));
+            assertTrue(Arrays.stream(index.arcsFrom(head)).noneMatch(other -> other == arc));
+            assertEquals(head, index.tail(arc ^ 1));
+            assertEquals(tail, index.head(arc ^ 1));
+            assertEquals(index.op(arc).symmetric(), index.op(arc ^ 1));
+        }
+        int from0 = index.arcsFrom(0)[0];
+        assertEquals(1, index.head(from0));
+        assertEquals(DateOp.LT, index.op(from0));
+        assertEquals(DateOp.GT, index.op(from0 ^ 1));
+        assertArrayEquals(new int[] {from0 ^ 1}, index.arcsInto(0));
+
+        // Only constraints with assigned meetings are checked
+        int none = MeetingDomain.NONE,
+            jan1 = MeetingDomain.toEpochDay(LocalDate.of(2023, 1, 1)),
+            jan2 = jan1 + 1, jan3 = jan1 + 2;
+        assertTrue(index.isConsistent(1, new int[] {none, jan1, none, none}));
+        assertTrue(!index.isConsistent(0, new int[] {jan1, none, none, none}));
+        assertTrue(index.isConsistent(0, new int[] {jan2, none, none, none}));
+        assertTrue(index.isConsistent(0, new int[] {jan2, jan3, none, none}));
+        assertTrue(!index.isConsistent(1, new int[] {jan2, jan2, none, none}));
+        assertTrue(!index.isConsistent(2, new int[] {none, jan3, jan3, none}));
+        assertTrue(index.isConsistent(2, new int[] {none, jan3, jan2, jan2}));
+
+        // Constraints added later are indexed alike
+        index.add(new BinaryDateConstraint(3, "<=", 2));
+        assertEquals(6, index.arcs());
+        assertEquals(DateOp.LE, index.op(index.arcsFrom(3)[0]));
+        assertTrue(!index.isConsistent(3, new int[] {none, none, jan2, jan3}));
+    }
+
+    // Normalization Tests
+    // -------------------------------------------------
+
+    @Test
+    public void normalize_t0() {
+        Set<DateConstraint> constraints = new HashSet<>(
+            Arrays.asList(
+                new UnaryDateConstraint(0, ">", LocalDate.of(2023, 1, 1)),
+                new UnaryDateConstraint(0, ">", LocalDate.of(2023, 2, 1)),
+                new UnaryDateConstraint(0, "!=", LocalDate.of(2023, 1, 15)),
+                new BinaryDateConstraint(0, "<", 1),
+                new BinaryDateConstraint(1, "!=", 0),
+                new BinaryDateConstraint(2, ">=", 1),
+                new BinaryDateConstraint(1, ">=", 2)
+            )
+        );
+
+        NormalizedConstraints normalized = NormalizedConstraints.of(
+            3, LocalDate.of(2023, 1, 1), LocalDate.of(2023, 3, 31), constraints
+        );
+
+        // Redundant bounds and != outside of them drop out, pairs merge
+        assertTrue(!normalized.UNSATISFIABLE);
+        assertEquals(
+            new HashSet<>(Arrays.asList(
+                new UnaryDateConstraint(0, ">=", LocalDate.of(2023, 2, 2)),
+                new BinaryDateConstraint(0, "<", 1),
+                new BinaryDateConstraint(1, "==", 2)
+            )),
+            normalized.CONSTRAINTS
+        );
+    }
+
+    @Test
+    public void normalize_t1() {
+        Set<DateConstraint> constraints = new HashSet<>(
+            Arrays.asList(
+                new BinaryDateConstraint(0, "<=", 1),
+                new BinaryDateConstraint(1, "<=", 2),
+                new BinaryDateConstraint(0, ">", 1)
+            )
+        );
+
+        // Contradictory pair is caught before any domain is built
+        assertTrue(NormalizedConstraints.of(3, LocalDate.of(2023, 1, 1), LocalDate.of(2023, 1, 5), constraints).UNSATISFIABLE);
+        assertNull(solve(3, LocalDate.of(2023, 1, 1), LocalDate.of(2023, 1, 5), constraints));
+    }
+
     // CSPSolver Tests
     // -------------------------------------------------
     @Test
@@ -581,5 +1308,193 @@ public class CSPTests {
         // [2022-05-31, 2022-04-30, 2022-04-28, 2022-04-29, 2022-05-30]
         testSolution(solution, constraints);
     }
+
+    @Test
+    public void solve_t10() {
+        Set<DateConstraint> constraints = new HashSet<>(
+            Arrays.asList(
+                new BinaryDateConstraint(0, ">", 1)
+            )
+        );
+        LocalDate startRange = LocalDate.of(2022, 1, 1),
+                  endRange   = LocalDate.of(2022, 1, 5);
+
+        // Meeting 0 on Jan 5 leaves meeting 1 every day it has, where Jan 2
+        // would leave it only Jan 1
+        List<LocalDate> solution = solve(2, startRange, endRange, constraints);
+        testSolution(solution, constraints);
+        assertEquals(LocalDate.of(2022, 1, 5), solution.get(0));
+        assertEquals(LocalDate.of(2022, 1, 1), solution.get(1));
+
+        solution = solve(2, startRange, endRange, constraints, new SolverOptions().leastConstrainingValue(false));
+        assertEquals(LocalDate.of(2022, 1, 2), solution.get(0));
+    }
+
+    @Test
+    public void solve_t11() {
+        // Four meetings on three days, pairwise apart: arc consistent, and
+        // only forward checking sees the third assignment wipe out the fourth
+        Set<DateConstraint> constraints = pairwiseApart(new HashSet<>(), 0, 4);
+        LocalDate startRange = LocalDate.of(2022, 1, 1),
+                  endRange   = LocalDate.of(2022, 1, 3);
+        List<MeetingDomain> domains = generateDomains(4, startRange, endRange);
+        ConstraintIndex index = new ConstraintIndex(4, constraints);
+        for (Lookahead lookahead : Lookahead.values()) {
+            SolverOptions options = new SolverOptions().lookahead(lookahead);
+            assertNull(new BacktrackingSearch(domains, index, options).solve());
+            assertNull(solve(4, startRange, endRange, constraints, options));
+        }
+        // Whatever search pruned, it has restored
+        for (MeetingDomain domain : domains) {
+            assertEquals(3, domain.domainValues.size());
+        }
+
+        constraints.remove(new BinaryDateConstraint(0, "!=", 3));
+        List<LocalDate> solution = solve(4, startRange, endRange, constraints,
+                new SolverOptions().lookahead(Lookahead.FORWARD_CHECKING));
+        testSolution(solution, constraints);
+        assertEquals(solution.get(0), solution.get(3));
+    }
+
+    @Test
+    public void solve_t12() {
+        // Four meetings on three days, pairwise apart: MAC sees the second
+        // assignment wipe out the fourth meeting, where forward checking
+        // has to assign the third first
+        Set<DateConstraint> constraints = pairwiseApart(new HashSet<>(), 0, 4);
+        LocalDate startRange = LocalDate.of(2022, 1, 1),
+                  endRange   = LocalDate.of(2022, 1, 3);
+        SearchStatistics forwardChecking = new SearchStatistics(), mac = new SearchStatistics();
+        assertNull(solve(4, startRange, endRange, constraints,
+                new SolverOptions().lookahead(Lookahead.FORWARD_CHECKING).statistics(forwardChecking)));
+        assertNull(solve(4, startRange, endRange, constraints,
+                new SolverOptions().lookahead(Lookahead.MAC).statistics(mac)));
+        assertTrue(mac.nodes() < forwardChecking.nodes());
+        assertEquals(mac.nodes(), mac.backtracks());
+        assertTrue(mac.wipeouts() > 0);
+
+        // Counts add up over every solve given the same statistics
+        long nodes = mac.nodes();
+        solve(4, startRange, endRange, constraints, new SolverOptions().lookahead(Lookahead.MAC).statistics(mac));
+        assertEquals(2 * nodes, mac.nodes());
+    }
+
+    @Test
+    public void solve_t13() {
+        // Eight pairs of meetings apart on two days each, assigned first by
+        // MRV, then four meetings on three days, pairwise apart: the last
+        // four fail whatever the pairs' days, which backjumping sees
+        // rather than retrying every one of the pairs' 256 assignments
+        Set<DateConstraint> constraints = pairwiseApart(new HashSet<>(), 0, 4);
+        for (int m = 4; m < 20; m += 2) {
+            constraints.add(new UnaryDateConstraint(m, "<", LocalDate.of(2022, 1, 3)));
+            constraints.add(new UnaryDateConstraint(m + 1, "<", LocalDate.of(2022, 1, 3)));
+            constraints.add(new BinaryDateConstraint(m, "!=", m + 1));
+        }
+        LocalDate startRange = LocalDate.of(2022, 1, 1),
+                  endRange   = LocalDate.of(2022, 1, 3);
+        for (Lookahead lookahead : Lookahead.values()) {
+            SearchStatistics chronological = new SearchStatistics(), backjumping = new SearchStatistics();
+            assertNull(solve(20, startRange, endRange, constraints,
+                    new SolverOptions().lookahead(lookahead).backjumping(false).statistics(chronological)));
+            assertNull(solve(20, startRange, endRange, constraints,
+                    new SolverOptions().lookahead(lookahead).statistics(backjumping)));
+            assertEquals(0, chronological.backjumps());
+            assertTrue(backjumping.backjumps() > 0);
+            assertTrue(10 * backjumping.nodes() < chronological.nodes());
+        }
+    }
+    
+    @Test
+    public void solve_t14() {
+        // Search over an off-heap store works on heap copies: lookahead
+        // pruning neither misleads the search nor is left in the store
+        Set<DateConstraint> constraints = new HashSet<>(
+            Arrays.asList(
+                new BinaryDateConstraint(0, "<", 3),
+                new BinaryDateConstraint(4, "<", 0),
+                new BinaryDateConstraint(1, "<", 3)
+            )
+        );
+        LocalDate startRange = LocalDate.of(2022, 1, 1),
+                  endRange   = LocalDate.of(2022, 1, 3);
+        OffHeapDomainStore store = OffHeapDomainStore.of(5, startRange, endRange, constraints);
+        store.nodeConsistency();
+        assertTrue(store.arcConsistency());
+        for (Lookahead lookahead : Lookahead.values()) {
+            int[] assignment = new BacktrackingSearch(store.domains(), new ConstraintIndex(5, constraints),
+                    new SolverOptions().lookahead(lookahead)).solve();
+            assertNotNull(assignment);
+            assertEquals(MeetingDomain.toEpochDay(LocalDate.of(2022, 1, 1)), assignment[4]);
+            assertEquals(MeetingDomain.toEpochDay(LocalDate.of(2022, 1, 2)), assignment[0]);
+            assertEquals(MeetingDomain.toEpochDay(LocalDate.of(2022, 1, 3)), assignment[3]);
+            int[] sizes = {1, 2, 3, 1, 1};
+            for (int m = 0; m < 5; m++) {
+                assertEquals(sizes[m], store.domain(m).size());
+            }
+        }
+    }
+    
+    @Test
+    public void solve_t15() {
+        // Without LCV, the meeting searched first takes its earliest day.
+        // Meeting 1 has fewer days left than 0, so is assigned first...
+        Set<DateConstraint> constraints = new HashSet<>(
+            Arrays.asList(
+                new BinaryDateConstraint(0, "!=", 1),
+                new UnaryDateConstraint(1, "<=", LocalDate.of(2022, 1, 2))
+            )
+        );
+        SearchStatistics statistics = new SearchStatistics();
+        SolverOptions options = new SolverOptions().leastConstrainingValue(false).statistics(statistics);
+        assertEquals(
+            Arrays.asList(LocalDate.of(2022, 1, 2), LocalDate.of(2022, 1, 1)),
+            solve(2, LocalDate.of(2022, 1, 1), LocalDate.of(2022, 1, 3), constraints, options)
+        );
+        assertEquals(2, statistics.nodes());
+        assertEquals(0, statistics.backtracks());
+
+        // ...and among meetings with as many days, 1 is constrained with
+        // the most unassigned ones, then 0 and 2 tie and go in index order
+        constraints = new HashSet<>(
+            Arrays.asList(
+                new BinaryDateConstraint(0, "!=", 1),
+                new BinaryDateConstraint(1, "!=", 2)
+            )
+        );
+        statistics.clear();
+        assertEquals(
+            Arrays.asList(LocalDate.of(2022, 1, 2), LocalDate.of(2022, 1, 1), LocalDate.of(2022, 1, 2)),
+            solve(3, LocalDate.of(2022, 1, 1), LocalDate.of(2022, 1, 2), constraints, options)
+        );
+        assertEquals(3, statistics.nodes());
+        assertEquals(0, statistics.backtracks());
+    }
+    
+    @Test
+    public void solve_t16() throws IOException {
+        // A chain 0 < 1 < ... < 9 hanging off the pigeonhole of solve_t12:
+        // MAC stops propagating at the first domain it wipes out, rather
+        // than emptying the chain after it for nothing
+        Set<DateConstraint> constraints = pairwiseApart(new HashSet<>(), 0, 4);
+        for (int m = 3; m < 9; m++) {
+            constraints.add(new BinaryDateConstraint(m, "<=", m + 1));
+        }
+        SearchStatistics statistics = new SearchStatistics();
+        PropagationTrace trace = new PropagationTrace(1 << 12);
+        setTrace(trace);
+        try {
+            assertNull(solve(10, LocalDate.of(2022, 1, 1), LocalDate.of(2022, 1, 3), constraints,
+                    new SolverOptions().lookahead(Lookahead.MAC).statistics(statistics)));
+        } finally {
+            setTrace(null);
+        }
+        assertTrue(trace.recorded() < (1 << 12));
+        StringWriter out = new StringWriter();
+        trace.dump(out);
+        long wipeouts = Arrays.stream(out.toString().split("\n")).filter(line -> line.contains("(wiped out)")).count();
+        assertTrue(statistics.wipeouts() > 0);
+        assertEquals(statistics.wipeouts(), wipeouts);
+    }
     
 }